@@ -0,0 +1,55 @@
+package scheduler;
+
+import java.util.Locale;
+
+/**
+ * Selects archived tasks by finish time ({@code finishedFrom} inclusive, {@code finishedTo}
+ * exclusive), category and outcome. A {@code null} category or status matches any.
+ */
+public record ArchiveQuery(
+        long finishedFrom,
+        long finishedTo,
+        String category,
+        TaskStatus status
+) {
+    public ArchiveQuery {
+        if (finishedFrom > finishedTo) {
+            throw new IllegalArgumentException("Archive query range ends before it starts.");
+        }
+        if (status != null && !status.isTerminal()) {
+            throw new IllegalArgumentException("Only finished tasks are archived, not " + status + " ones.");
+        }
+        category = category == null || category.isBlank() ? null : normalizeCategory(category);
+    }
+
+    public static ArchiveQuery all() {
+        return new ArchiveQuery(Long.MIN_VALUE, Long.MAX_VALUE, null, null);
+    }
+
+    public static ArchiveQuery finishedBetween(long finishedFrom, long finishedTo) {
+        return new ArchiveQuery(finishedFrom, finishedTo, null, null);
+    }
+
+    public ArchiveQuery withCategory(String category) {
+        return new ArchiveQuery(finishedFrom, finishedTo, category, status);
+    }
+
+    public ArchiveQuery withStatus(TaskStatus status) {
+        return new ArchiveQuery(finishedFrom, finishedTo, category, status);
+    }
+
+    public boolean overlaps(long minFinishedAt, long maxFinishedAt) {
+        return minFinishedAt < finishedTo && maxFinishedAt >= finishedFrom;
+    }
+
+    public boolean matches(ScheduledTask task) {
+        return task.getFinishedAt() >= finishedFrom
+                && task.getFinishedAt() < finishedTo
+                && (category == null || category.equals(normalizeCategory(task.getCategory())))
+                && (status == null || status == task.getStatus());
+    }
+
+    static String normalizeCategory(String category) {
+        return category == null ? "" : category.trim().toLowerCase(Locale.ROOT);
+    }
+}
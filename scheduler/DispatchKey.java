@@ -0,0 +1,77 @@
+package scheduler;
+
+/**
+ * Point-in-time snapshot of everything the dispatcher compares for one task.
+ * The key stays exact until {@code expiresAt}, the next instant at which aging or
+ * deadline urgency could change the task's effective priority or risk state.
+ */
+public record DispatchKey(
+        boolean atRisk,
+        int effectivePriority,
+        long latestStartAtEpochMs,
+        int priority,
+        long deadlineEpochMs,
+        long readyAtEpochMs,
+        long createdAt,
+        long expiresAt
+) {
+    public int compareTo(DispatchKey other, SchedulingMode mode) {
+        switch (mode) {
+            case PRIORITY_FIRST -> {
+                int effectivePriorityCompare = Integer.compare(effectivePriority, other.effectivePriority);
+                if (effectivePriorityCompare != 0) {
+                    return effectivePriorityCompare;
+                }
+
+                int deadlineCompare = Long.compare(deadlineEpochMs, other.deadlineEpochMs);
+                if (deadlineCompare != 0) {
+                    return deadlineCompare;
+                }
+            }
+            case DEADLINE_FIRST -> {
+                // Slack is latestStartAt - now, so comparing latest start times compares slack.
+                int slackCompare = Long.compare(latestStartAtEpochMs, other.latestStartAtEpochMs);
+                if (slackCompare != 0) {
+                    return slackCompare;
+                }
+
+                int effectivePriorityCompare = Integer.compare(effectivePriority, other.effectivePriority);
+                if (effectivePriorityCompare != 0) {
+                    return effectivePriorityCompare;
+                }
+            }
+            case ADAPTIVE -> {
+                if (atRisk != other.atRisk) {
+                    return atRisk ? -1 : 1;
+                }
+
+                int effectivePriorityCompare = Integer.compare(effectivePriority, other.effectivePriority);
+                if (effectivePriorityCompare != 0) {
+                    return effectivePriorityCompare;
+                }
+
+                int slackCompare = Long.compare(latestStartAtEpochMs, other.latestStartAtEpochMs);
+                if (slackCompare != 0) {
+                    return slackCompare;
+                }
+            }
+        }
+
+        int priorityCompare = Integer.compare(priority, other.priority);
+        if (priorityCompare != 0) {
+            return priorityCompare;
+        }
+
+        int deadlineCompare = Long.compare(deadlineEpochMs, other.deadlineEpochMs);
+        if (deadlineCompare != 0) {
+            return deadlineCompare;
+        }
+
+        int readyCompare = Long.compare(readyAtEpochMs, other.readyAtEpochMs);
+        if (readyCompare != 0) {
+            return readyCompare;
+        }
+
+        return Long.compare(createdAt, other.createdAt);
+    }
+}
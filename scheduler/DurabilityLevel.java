@@ -0,0 +1,36 @@
+package scheduler;
+
+/**
+ * How much of a state change must reach disk before the engine moves on.
+ */
+public enum DurabilityLevel {
+    /** Changes are written only by checkpoints and at shutdown. */
+    NONE("None"),
+    /** Changes are group-committed by the persistence thread after a short coalescing window. */
+    BATCHED("Batched"),
+    /** Every state transition is written before the engine continues. */
+    SYNC_PER_TRANSITION("Sync per transition");
+
+    private final String displayName;
+
+    DurabilityLevel(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public static DurabilityLevel fromProperty(String value) {
+        if (value != null) {
+            String normalized = value.trim().replace('-', '_');
+            for (DurabilityLevel level : values()) {
+                if (level.name().equalsIgnoreCase(normalized)) {
+                    return level;
+                }
+            }
+        }
+        return BATCHED;
+    }
+
+    @Override
+    public String toString() {
+        return displayName;
+    }
+}
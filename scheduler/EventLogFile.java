@@ -0,0 +1,459 @@
+package scheduler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * On-disk event log: the active segment {@code scheduler.events} plus rotated segments
+ * {@code scheduler-<utc time>.events[.gz]}.
+ *
+ * <p>A segment is a header (magic, version, creation time) followed by frames of
+ * {@code [length][record][crc32][length]}. The trailing length lets startup read only the
+ * newest records by walking back from the end of the file; a torn frame left by a crash is
+ * skipped by scanning back to the last frame that checks out, and cut off. Rotated segments
+ * are compressed and pruned on a background thread.</p>
+ */
+public class EventLogFile {
+    private static final byte[] MAGIC = {'R', 'T', 'E', 'V'};
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = MAGIC.length + 1 + 8;
+    private static final int FRAME_OVERHEAD = 12;
+    private static final int MAX_RECORD_BYTES = 1024 * 1024;
+    private static final int TAIL_WINDOW_BYTES = 256 * 1024;
+    private static final long ROTATION_RETRY_MS = 60_000L;
+    private static final String ACTIVE_FILE_NAME = "scheduler.events";
+    private static final String ROTATED_PREFIX = "scheduler-";
+    private static final String ROTATED_SUFFIX = ".events";
+    private static final String COMPRESSED_SUFFIX = ".gz";
+    // Plain-text log written before events were binary; only its tail is ever read.
+    private static final String LEGACY_LOG_FILE_NAME = "scheduler.log";
+    private static final DateTimeFormatter ROTATED_NAME_FORMATTER =
+            DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS").withZone(ZoneOffset.UTC);
+
+    private final Path dataDirectory;
+    private final Path activeFile;
+    private final LogRotation rotation;
+    private final CRC32 checksum = new CRC32();
+    private ExecutorService maintenanceExecutor;
+    private FileChannel channel;
+    private long segmentCreatedAt;
+    // After a failed rotation, neither rotation nor reopening is retried before this time.
+    private long retryAt;
+    private boolean closed;
+
+    public EventLogFile(Path dataDirectory, LogRotation rotation) {
+        this.dataDirectory = dataDirectory;
+        this.activeFile = dataDirectory.resolve(ACTIVE_FILE_NAME);
+        this.rotation = rotation == null ? LogRotation.defaults() : rotation;
+    }
+
+    public Path getActiveFile() {
+        return activeFile;
+    }
+
+    /**
+     * Opens the active segment for appending and returns up to {@code maxEvents} of its newest
+     * records, oldest first.
+     */
+    public List<SchedulerEvent> open(int maxEvents) throws IOException {
+        Files.createDirectories(dataDirectory);
+        List<SchedulerEvent> events = new ArrayList<>();
+        if (!Files.exists(activeFile)) {
+            events.addAll(readLegacyTail(maxEvents));
+            openNewSegment();
+            scheduleMaintenance();
+            return events;
+        }
+
+        channel = FileChannel.open(activeFile, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (channel.size() < HEADER_BYTES) {
+            // Created but never written: start it over.
+            channel.close();
+            openNewSegment();
+            scheduleMaintenance();
+            return events;
+        }
+        if (!readHeader()) {
+            // Written by an older version or not ours; kept as a rotated segment, not read.
+            rotate();
+            return events;
+        }
+
+        long validLength = readTail(maxEvents, events);
+        if (validLength < channel.size()) {
+            System.err.println("Discarded a torn or unreadable tail of " + activeFile + ".");
+            channel.truncate(validLength);
+        }
+        channel.position(channel.size());
+        if (isRotationDue(System.currentTimeMillis())) {
+            rotate();
+        } else {
+            scheduleMaintenance();
+        }
+        return events;
+    }
+
+    /**
+     * Encodes {@code event} into {@code output} as one frame.
+     */
+    public static void writeFrame(SchedulerEvent event, SchedulerEvent.Output output, CRC32 checksum) {
+        int frameStart = output.size();
+        output.writeInt(0);
+        event.encode(output);
+        int recordLength = output.size() - frameStart - 4;
+        output.patchInt(frameStart, recordLength);
+        checksum.reset();
+        checksum.update(output.array(), frameStart + 4, recordLength);
+        output.writeInt((int) checksum.getValue());
+        output.writeInt(recordLength);
+    }
+
+    public void append(byte[] data, int length) throws IOException {
+        if (closed) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (channel == null) {
+            if (now < retryAt) {
+                return;
+            }
+            retryAt = now + ROTATION_RETRY_MS;
+            reopenActiveSegment();
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(data, 0, length);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        if (now >= retryAt && isRotationDue(now)) {
+            rotate();
+        }
+    }
+
+    public void close() throws IOException {
+        closed = true;
+        synchronized (this) {
+            if (maintenanceExecutor != null) {
+                // Queued compression still finishes; the thread then exits.
+                maintenanceExecutor.shutdown();
+                maintenanceExecutor = null;
+            }
+        }
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    private boolean isRotationDue(long now) throws IOException {
+        long size = channel.size();
+        if (size <= HEADER_BYTES) {
+            return false;
+        }
+        return (rotation.maxBytes() > 0L && size >= rotation.maxBytes())
+                || (rotation.maxAgeMs() > 0L && now - segmentCreatedAt >= rotation.maxAgeMs());
+    }
+
+    private void rotate() throws IOException {
+        channel.close();
+        channel = null;
+        try {
+            Path rotatedFile = dataDirectory.resolve(
+                    ROTATED_PREFIX + ROTATED_NAME_FORMATTER.format(Instant.now()) + ROTATED_SUFFIX
+            );
+            for (int attempt = 1; Files.exists(rotatedFile) || Files.exists(compressedPath(rotatedFile)); attempt++) {
+                rotatedFile = dataDirectory.resolve(
+                        ROTATED_PREFIX + ROTATED_NAME_FORMATTER.format(Instant.now()) + "-" + attempt + ROTATED_SUFFIX
+                );
+            }
+            Files.move(activeFile, rotatedFile, StandardCopyOption.ATOMIC_MOVE);
+            openNewSegment();
+        } catch (IOException exception) {
+            // Keep logging into the current segment and try again later.
+            if (channel != null) {
+                channel.close();
+                channel = null;
+            }
+            retryAt = System.currentTimeMillis() + ROTATION_RETRY_MS;
+            System.err.println("Failed to rotate " + activeFile + "; retrying later: " + exception.getMessage());
+            reopenActiveSegment();
+            return;
+        }
+        scheduleMaintenance();
+    }
+
+    /**
+     * Reopens the active segment for appending after a failed rotation, or starts a new one
+     * if the failure left none.
+     */
+    private void reopenActiveSegment() throws IOException {
+        if (!Files.exists(activeFile)) {
+            openNewSegment();
+            return;
+        }
+        channel = FileChannel.open(activeFile, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (channel.size() < HEADER_BYTES) {
+            channel.close();
+            openNewSegment();
+            return;
+        }
+        channel.position(channel.size());
+    }
+
+    private void openNewSegment() throws IOException {
+        channel = FileChannel.open(
+                activeFile,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.READ,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING
+        );
+        segmentCreatedAt = System.currentTimeMillis();
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.put(MAGIC).put((byte) VERSION).putLong(segmentCreatedAt).flip();
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+    }
+
+    private boolean readHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        while (header.hasRemaining() && channel.read(header, header.position()) >= 0) {
+            // Positional reads until the header is complete.
+        }
+        header.flip();
+        for (byte expected : MAGIC) {
+            if (header.get() != expected) {
+                return false;
+            }
+        }
+        if (header.get() != VERSION) {
+            return false;
+        }
+        segmentCreatedAt = header.getLong();
+        return true;
+    }
+
+    /**
+     * Walks frames back from the end of the segment, reading a window that doubles until it
+     * holds {@code maxEvents} records. Returns the length of the readable prefix.
+     */
+    private long readTail(int maxEvents, List<SchedulerEvent> events) throws IOException {
+        long size = channel.size();
+        long windowStart = Math.max(HEADER_BYTES, size - TAIL_WINDOW_BYTES);
+        byte[] window = readRange(windowStart, size);
+        long frameEnd = size;
+        long validLength = -1L;
+        List<SchedulerEvent> newestFirst = new ArrayList<>();
+
+        while (frameEnd > HEADER_BYTES && newestFirst.size() < maxEvents) {
+            if (frameEnd - windowStart < FRAME_OVERHEAD && windowStart > HEADER_BYTES) {
+                windowStart = Math.max(HEADER_BYTES, windowStart - (size - windowStart));
+                window = readRange(windowStart, size);
+                continue;
+            }
+            SchedulerEvent event = null;
+            long frameStart = -1L;
+            if (frameEnd - windowStart >= FRAME_OVERHEAD) {
+                int length = readInt(window, (int) (frameEnd - 4 - windowStart));
+                frameStart = frameEnd - FRAME_OVERHEAD - length;
+                if (length < 0 || length > MAX_RECORD_BYTES || frameStart < HEADER_BYTES) {
+                    frameStart = -1L;
+                } else if (frameStart < windowStart) {
+                    windowStart = Math.max(HEADER_BYTES, Math.min(frameStart, windowStart - (size - windowStart)));
+                    window = readRange(windowStart, size);
+                    continue;
+                } else {
+                    event = readFrame(window, (int) (frameStart - windowStart), length);
+                }
+            }
+
+            if (event == null) {
+                if (validLength >= 0L) {
+                    // Damage in the middle of the segment: keep what was read after it.
+                    break;
+                }
+                frameEnd--;
+                continue;
+            }
+            if (validLength < 0L) {
+                validLength = frameEnd;
+            }
+            newestFirst.add(event);
+            frameEnd = frameStart;
+        }
+
+        Collections.reverse(newestFirst);
+        events.addAll(newestFirst);
+        return validLength < 0L ? (frameEnd <= HEADER_BYTES ? HEADER_BYTES : size) : validLength;
+    }
+
+    private SchedulerEvent readFrame(byte[] window, int frameStart, int length) {
+        if (readInt(window, frameStart) != length) {
+            return null;
+        }
+        checksum.reset();
+        checksum.update(window, frameStart + 4, length);
+        if ((int) checksum.getValue() != readInt(window, frameStart + 4 + length)) {
+            return null;
+        }
+        try {
+            return SchedulerEvent.decode(window, frameStart + 4, length);
+        } catch (IOException malformed) {
+            return null;
+        }
+    }
+
+    private byte[] readRange(long from, long to) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) (to - from));
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, from + buffer.position()) < 0) {
+                throw new IOException("Event log ended while reading its tail.");
+            }
+        }
+        return buffer.array();
+    }
+
+    private List<SchedulerEvent> readLegacyTail(int maxLines) throws IOException {
+        Path legacyFile = dataDirectory.resolve(LEGACY_LOG_FILE_NAME);
+        if (!Files.exists(legacyFile)) {
+            return List.of();
+        }
+        try (FileChannel legacyChannel = FileChannel.open(legacyFile, StandardOpenOption.READ)) {
+            long size = legacyChannel.size();
+            long from = size;
+            byte[] tail = new byte[0];
+            int lineBreaks = 0;
+            // Read back until the tail holds maxLines complete lines or the file is exhausted.
+            while (from > 0L && lineBreaks <= maxLines) {
+                long chunkStart = Math.max(0L, from - TAIL_WINDOW_BYTES);
+                ByteBuffer chunk = ByteBuffer.allocate((int) (from - chunkStart));
+                while (chunk.hasRemaining() && legacyChannel.read(chunk, chunkStart + chunk.position()) >= 0) {
+                    // Positional reads until the chunk is full.
+                }
+                byte[] merged = new byte[chunk.capacity() + tail.length];
+                System.arraycopy(chunk.array(), 0, merged, 0, chunk.capacity());
+                System.arraycopy(tail, 0, merged, chunk.capacity(), tail.length);
+                tail = merged;
+                for (int index = 0; index < chunk.capacity(); index++) {
+                    if (chunk.array()[index] == '\n') {
+                        lineBreaks++;
+                    }
+                }
+                from = chunkStart;
+            }
+
+            int start = 0;
+            if (from > 0L) {
+                // Drop the partial first line; it may also split a multi-byte character.
+                while (start < tail.length && tail[start] != '\n') {
+                    start++;
+                }
+                start++;
+            }
+            String[] lines = new String(tail, start, Math.max(0, tail.length - start), StandardCharsets.UTF_8)
+                    .split("\\R");
+            List<SchedulerEvent> events = new ArrayList<>();
+            for (int index = Math.max(0, lines.length - maxLines); index < lines.length; index++) {
+                if (!lines[index].isEmpty()) {
+                    events.add(SchedulerEvent.preformatted(lines[index]));
+                }
+            }
+            return events;
+        }
+    }
+
+    private synchronized void scheduleMaintenance() {
+        if (closed) {
+            return;
+        }
+        if (maintenanceExecutor == null) {
+            maintenanceExecutor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "scheduler-log-maintenance");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        maintenanceExecutor.execute(this::compressAndPrune);
+    }
+
+    // Also picks up segments whose compression a previous run did not finish.
+    private void compressAndPrune() {
+        try {
+            List<Path> segments = listRotatedSegments();
+            if (rotation.compress()) {
+                for (int index = 0; index < segments.size(); index++) {
+                    Path segment = segments.get(index);
+                    if (segment.getFileName().toString().endsWith(ROTATED_SUFFIX)) {
+                        segments.set(index, compress(segment));
+                    }
+                }
+            }
+            if (rotation.maxSegments() > 0) {
+                for (int index = 0; index < segments.size() - rotation.maxSegments(); index++) {
+                    Files.deleteIfExists(segments.get(index));
+                }
+            }
+        } catch (IOException exception) {
+            System.err.println("Failed to compress or prune rotated event logs: " + exception.getMessage());
+        }
+    }
+
+    private Path compress(Path segment) throws IOException {
+        Path compressedFile = compressedPath(segment);
+        Path temporaryFile = compressedFile.resolveSibling(compressedFile.getFileName() + ".tmp");
+        try (InputStream input = Files.newInputStream(segment);
+             OutputStream output = new GZIPOutputStream(Files.newOutputStream(temporaryFile), 64 * 1024)) {
+            input.transferTo(output);
+        }
+        Files.move(temporaryFile, compressedFile, StandardCopyOption.ATOMIC_MOVE);
+        Files.delete(segment);
+        return compressedFile;
+    }
+
+    // Oldest first: the names sort by rotation time.
+    private List<Path> listRotatedSegments() throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dataDirectory, ROTATED_PREFIX + "*")) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                if (name.endsWith(ROTATED_SUFFIX) || name.endsWith(ROTATED_SUFFIX + COMPRESSED_SUFFIX)) {
+                    segments.add(path);
+                } else if (name.endsWith(COMPRESSED_SUFFIX + ".tmp")) {
+                    Files.deleteIfExists(path);
+                }
+            }
+        }
+        segments.sort(null);
+        return segments;
+    }
+
+    private static Path compressedPath(Path segment) {
+        return segment.resolveSibling(segment.getFileName() + COMPRESSED_SUFFIX);
+    }
+
+    private static int readInt(byte[] data, int position) {
+        return ((data[position] & 0xFF) << 24)
+                | ((data[position + 1] & 0xFF) << 16)
+                | ((data[position + 2] & 0xFF) << 8)
+                | (data[position + 3] & 0xFF);
+    }
+}
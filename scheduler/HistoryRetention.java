@@ -0,0 +1,27 @@
+package scheduler;
+
+/**
+ * How many finished tasks the engine keeps in memory. Tasks past any limit are moved to the
+ * {@link TaskArchive}; a limit of zero is off.
+ */
+public record HistoryRetention(
+        long maxAgeMs,
+        int maxTasks,
+        int maxTasksPerCategory
+) {
+    public HistoryRetention {
+        maxAgeMs = Math.max(0L, maxAgeMs);
+        maxTasks = Math.max(0, maxTasks);
+        maxTasksPerCategory = Math.max(0, maxTasksPerCategory);
+    }
+
+    public static HistoryRetention unlimited() {
+        return new HistoryRetention(0L, 0, 0);
+    }
+
+    public String describe() {
+        return "age " + (maxAgeMs > 0L ? maxAgeMs + " ms" : "unlimited")
+                + " • count " + (maxTasks > 0 ? maxTasks : "unlimited")
+                + " • per category " + (maxTasksPerCategory > 0 ? maxTasksPerCategory : "unlimited");
+    }
+}
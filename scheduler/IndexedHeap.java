@@ -0,0 +1,186 @@
+package scheduler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Array-backed d-ary min-heap that tracks the slot of every element, so removing or
+ * re-keying an arbitrary element is O(log n) instead of a linear search.
+ * Not thread-safe; callers guard it with their own lock.
+ */
+public class IndexedHeap<E> {
+    private static final int ARITY = 4;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Map<E, Integer> positions = new HashMap<>();
+    private Comparator<? super E> comparator;
+    private Object[] elements = new Object[INITIAL_CAPACITY];
+    private int size;
+
+    public IndexedHeap(Comparator<? super E> comparator) {
+        this.comparator = comparator;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean contains(E element) {
+        return positions.containsKey(element);
+    }
+
+    public boolean offer(E element) {
+        if (positions.containsKey(element)) {
+            update(element);
+            return false;
+        }
+        if (size == elements.length) {
+            elements = Arrays.copyOf(elements, size * 2);
+        }
+        elements[size] = element;
+        positions.put(element, size);
+        size++;
+        siftUp(size - 1);
+        return true;
+    }
+
+    public E peek() {
+        return size == 0 ? null : elementAt(0);
+    }
+
+    public E poll() {
+        if (size == 0) {
+            return null;
+        }
+        E head = elementAt(0);
+        removeAt(0);
+        return head;
+    }
+
+    public boolean remove(E element) {
+        Integer index = positions.get(element);
+        if (index == null) {
+            return false;
+        }
+        removeAt(index);
+        return true;
+    }
+
+    /**
+     * Restores heap order after the ordering key of {@code element} changed in either direction.
+     */
+    public boolean update(E element) {
+        Integer index = positions.get(element);
+        if (index == null) {
+            return false;
+        }
+        if (siftUp(index) == index) {
+            siftDown(index);
+        }
+        return true;
+    }
+
+    /**
+     * Switches to a new ordering and rebuilds the heap bottom-up in O(n).
+     */
+    public void reorder(Comparator<? super E> newComparator) {
+        this.comparator = newComparator;
+        heapify();
+    }
+
+    public void heapify() {
+        for (int index = (size - 2) / ARITY; index >= 0; index--) {
+            siftDown(index);
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(elements, 0, size, null);
+        positions.clear();
+        size = 0;
+    }
+
+    public List<E> toList() {
+        List<E> values = new ArrayList<>(size);
+        for (int index = 0; index < size; index++) {
+            values.add(elementAt(index));
+        }
+        return values;
+    }
+
+    private void removeAt(int index) {
+        E removed = elementAt(index);
+        positions.remove(removed);
+        size--;
+        if (index == size) {
+            elements[size] = null;
+            return;
+        }
+
+        E last = elementAt(size);
+        elements[size] = null;
+        place(last, index);
+        if (siftUp(index) == index) {
+            siftDown(index);
+        }
+    }
+
+    private int siftUp(int index) {
+        E element = elementAt(index);
+        while (index > 0) {
+            int parent = (index - 1) / ARITY;
+            E parentElement = elementAt(parent);
+            if (comparator.compare(element, parentElement) >= 0) {
+                break;
+            }
+            place(parentElement, index);
+            index = parent;
+        }
+        place(element, index);
+        return index;
+    }
+
+    private void siftDown(int index) {
+        E element = elementAt(index);
+        while (true) {
+            int firstChild = index * ARITY + 1;
+            if (firstChild >= size) {
+                break;
+            }
+
+            int bestChild = firstChild;
+            int lastChild = Math.min(firstChild + ARITY, size);
+            for (int child = firstChild + 1; child < lastChild; child++) {
+                if (comparator.compare(elementAt(child), elementAt(bestChild)) < 0) {
+                    bestChild = child;
+                }
+            }
+
+            E bestElement = elementAt(bestChild);
+            if (comparator.compare(bestElement, element) >= 0) {
+                break;
+            }
+            place(bestElement, index);
+            index = bestChild;
+        }
+        place(element, index);
+    }
+
+    private void place(E element, int index) {
+        elements[index] = element;
+        positions.put(element, index);
+    }
+
+    @SuppressWarnings("unchecked")
+    private E elementAt(int index) {
+        return (E) elements[index];
+    }
+}
@@ -0,0 +1,16 @@
+package scheduler;
+
+public record LaneSnapshot(
+        int laneIndex,
+        ScheduledTask runningTask,
+        long busyMs,
+        int utilizationPercent
+) {
+    public boolean isBusy() {
+        return runningTask != null;
+    }
+
+    public String displayName() {
+        return "Lane " + (laneIndex + 1);
+    }
+}
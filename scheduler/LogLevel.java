@@ -0,0 +1,34 @@
+package scheduler;
+
+/**
+ * Severity of a scheduler log entry, lowest first.
+ */
+public enum LogLevel {
+    DEBUG("Debug"),
+    INFO("Info"),
+    WARN("Warning"),
+    ERROR("Error");
+
+    private final String displayName;
+
+    LogLevel(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public static LogLevel fromName(String value) {
+        if (value != null) {
+            String normalized = value.trim();
+            for (LogLevel level : values()) {
+                if (level.name().equalsIgnoreCase(normalized) || level.displayName.equalsIgnoreCase(normalized)) {
+                    return level;
+                }
+            }
+        }
+        throw new IllegalArgumentException("Unknown log level '" + value + "'.");
+    }
+
+    @Override
+    public String toString() {
+        return displayName;
+    }
+}
@@ -0,0 +1,24 @@
+package scheduler;
+
+/**
+ * When the event log starts a new segment and what happens to the old ones. A segment is
+ * rotated once it reaches {@code maxBytes} or is {@code maxAgeMs} old; the newest
+ * {@code maxSegments} rotated segments are kept, gzip-compressed when {@code compress} is
+ * set. A limit of zero is off.
+ */
+public record LogRotation(
+        long maxBytes,
+        long maxAgeMs,
+        int maxSegments,
+        boolean compress
+) {
+    public LogRotation {
+        maxBytes = Math.max(0L, maxBytes);
+        maxAgeMs = Math.max(0L, maxAgeMs);
+        maxSegments = Math.max(0, maxSegments);
+    }
+
+    public static LogRotation defaults() {
+        return new LogRotation(16L * 1024L * 1024L, 24L * 3_600_000L, 10, true);
+    }
+}
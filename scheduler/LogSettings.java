@@ -0,0 +1,108 @@
+package scheduler;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Which log entries are kept. An entry is logged when its level is at least the threshold
+ * for its event type, else for its task category, else {@code minimumLevel}. At most
+ * {@code maxEventsPerSecond} Debug or Info task events of one type are logged per second; the
+ * rest are counted and reported as one "N similar events suppressed" entry. Warnings, errors
+ * and free-text messages are never sampled. Zero turns sampling off.
+ */
+public record LogSettings(
+        LogLevel minimumLevel,
+        Map<SchedulerEventType, LogLevel> eventTypeLevels,
+        Map<String, LogLevel> categoryLevels,
+        int maxEventsPerSecond
+) implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    public LogSettings {
+        minimumLevel = minimumLevel == null ? LogLevel.DEBUG : minimumLevel;
+        eventTypeLevels = eventTypeLevels == null ? Map.of() : Map.copyOf(eventTypeLevels);
+        Map<String, LogLevel> normalizedCategories = new TreeMap<>();
+        if (categoryLevels != null) {
+            for (Map.Entry<String, LogLevel> entry : categoryLevels.entrySet()) {
+                if (entry.getKey() != null && !entry.getKey().isBlank() && entry.getValue() != null) {
+                    normalizedCategories.put(normalizeCategory(entry.getKey()), entry.getValue());
+                }
+            }
+        }
+        categoryLevels = Map.copyOf(normalizedCategories);
+        maxEventsPerSecond = Math.max(0, maxEventsPerSecond);
+    }
+
+    public static LogSettings defaults() {
+        return new LogSettings(LogLevel.DEBUG, Map.of(), Map.of(), 200);
+    }
+
+    /**
+     * Parses thresholds written as {@code name=level} pairs separated by commas, where the
+     * name is an event type such as {@code TASK_READY} or otherwise a task category.
+     */
+    public LogSettings withThresholds(String thresholds) {
+        Map<SchedulerEventType, LogLevel> typeLevels = new EnumMap<>(SchedulerEventType.class);
+        Map<String, LogLevel> categories = new LinkedHashMap<>();
+        if (thresholds != null) {
+            for (String pair : thresholds.split(",")) {
+                if (pair.isBlank()) {
+                    continue;
+                }
+                int separator = pair.indexOf('=');
+                if (separator <= 0) {
+                    throw new IllegalArgumentException("Log threshold '" + pair.trim() + "' must look like name=level.");
+                }
+                String name = pair.substring(0, separator).trim();
+                LogLevel level = LogLevel.fromName(pair.substring(separator + 1));
+                SchedulerEventType type = eventTypeNamed(name);
+                if (type != null) {
+                    typeLevels.put(type, level);
+                } else {
+                    categories.put(name, level);
+                }
+            }
+        }
+        return new LogSettings(minimumLevel, typeLevels, categories, maxEventsPerSecond);
+    }
+
+    public String describeThresholds() {
+        StringBuilder builder = new StringBuilder();
+        new TreeMap<>(eventTypeLevels).forEach((type, level) -> appendThreshold(builder, type.name(), level));
+        new TreeMap<>(categoryLevels).forEach((category, level) -> appendThreshold(builder, category, level));
+        return builder.toString();
+    }
+
+    public String describe() {
+        String thresholds = describeThresholds();
+        return "level " + minimumLevel
+                + (thresholds.isEmpty() ? "" : " • thresholds " + thresholds)
+                + " • sampling " + (maxEventsPerSecond > 0 ? maxEventsPerSecond + "/s per event type" : "off");
+    }
+
+    static String normalizeCategory(String category) {
+        return category.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static SchedulerEventType eventTypeNamed(String name) {
+        for (SchedulerEventType type : SchedulerEventType.values()) {
+            if (type.name().equalsIgnoreCase(name)) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    private static void appendThreshold(StringBuilder builder, String name, LogLevel level) {
+        if (!builder.isEmpty()) {
+            builder.append(", ");
+        }
+        builder.append(name).append('=').append(level.name());
+    }
+}
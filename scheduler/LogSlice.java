@@ -0,0 +1,16 @@
+package scheduler;
+
+import java.util.List;
+
+/**
+ * Log lines numbered {@code fromSequence} up to, not including, {@code nextSequence}. Pass
+ * {@code nextSequence} to {@link LoggerUtil#getLogsSince(long)} to read only what follows.
+ * {@code fromSequence} is later than the requested sequence when older lines have already
+ * left the in-memory log.
+ */
+public record LogSlice(
+        long fromSequence,
+        long nextSequence,
+        List<String> lines
+) {
+}
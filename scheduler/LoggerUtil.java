@@ -4,77 +4,510 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.CRC32;
 
+/**
+ * Scheduler event log. {@link #log(String)} and {@link #event} only stamp the time and publish
+ * the event's fields into a preallocated ring; a single writer thread encodes the entries as
+ * binary {@link SchedulerEvent} records and appends them in batches to a {@code FileChannel}
+ * kept open until the segment rotates, so callers holding the engine lock never wait on the
+ * disk or build strings. Text is rendered only when the log view or an export asks for it,
+ * or for console echo with {@code -Dscheduler.logConsole=true}. When the ring is full,
+ * callers wait a short while for the writer; past that, entries are counted and dropped
+ * rather than stalling the engine, and the writer logs how many were lost.
+ *
+ * <p>Entries below the thresholds in {@link LogSettings}, or routine task events past its
+ * per-type rate, are dropped before they reach the ring; the writer reports how many were
+ * sampled away.</p>
+ *
+ * <p>The file format, rotation and the tail-only read at startup live in {@link EventLogFile}.</p>
+ */
 public final class LoggerUtil {
     private static final int MAX_IN_MEMORY_LOGS = 5000;
-    private static final List<String> logs = Collections.synchronizedList(new ArrayList<>());
-    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
+    private static final int RING_CAPACITY = 8192;
+    private static final int RING_MASK = RING_CAPACITY - 1;
+    private static final int MAX_BATCH_ENTRIES = 512;
+    private static final long WRITER_IDLE_PARK_NS = TimeUnit.MILLISECONDS.toNanos(50L);
+    private static final long FLUSH_TIMEOUT_MS = 5_000L;
+    private static final long PUBLISH_WAIT_NS = TimeUnit.MILLISECONDS.toNanos(200L);
+    private static final long SAMPLING_WINDOW_MS = 1_000L;
+    private static final boolean CONSOLE_ECHO = Boolean.getBoolean("scheduler.logConsole");
+    private static final int EVENT_TYPE_COUNT = SchedulerEventType.values().length;
+    // The newest entries, by view sequence: entry s sits at s % MAX_IN_MEMORY_LOGS while
+    // recentStart <= s < recentEnd. Guarded by the class lock.
+    private static final SchedulerEvent[] recentEvents = new SchedulerEvent[MAX_IN_MEMORY_LOGS];
+    private static long recentStart;
+    private static long recentEnd;
 
-    private static Path logFile;
+    // Slot i holds sequence s when s & RING_MASK == i; published[i] == s + 1 once it is written.
+    private static final long[] ringTimestamps = new long[RING_CAPACITY];
+    private static final SchedulerEventType[] ringTypes = new SchedulerEventType[RING_CAPACITY];
+    private static final String[] ringTaskIds = new String[RING_CAPACITY];
+    private static final String[] ringTaskNames = new String[RING_CAPACITY];
+    private static final String[] ringRelatedNames = new String[RING_CAPACITY];
+    private static final int[] ringLanes = new int[RING_CAPACITY];
+    private static final long[] ringValues = new long[RING_CAPACITY * 3];
+    private static final Object[] ringDetails = new Object[RING_CAPACITY];
+    private static final AtomicLongArray ringPublished = new AtomicLongArray(RING_CAPACITY);
+    private static final AtomicLong nextSequence = new AtomicLong();
+    private static final Object channelLock = new Object();
+    private static volatile long consumedSequence;
+    private static volatile long writtenSequence;
+    private static volatile boolean writerParked;
+    // Entries given up on because the ring stayed full; reported by the writer as one DROPPED entry.
+    private static final AtomicLong droppedEntries = new AtomicLong();
+    private static final Thread writerThread = startWriter();
+
+    private static EventLogFile eventLog;
+
+    private static volatile LogFilter logFilter = new LogFilter(LogSettings.defaults());
+    // Per event type, guarded by samplingLock. Suppressed counts move to pendingSummaries
+    // when their window closes; the writer turns those into SUPPRESSED entries.
+    private static final Object samplingLock = new Object();
+    private static final long[] samplingWindowStartedAt = new long[EVENT_TYPE_COUNT];
+    private static final int[] samplingWindowCounts = new int[EVENT_TYPE_COUNT];
+    private static final long[] suppressedCounts = new long[EVENT_TYPE_COUNT];
+    private static final long[] pendingSummaries = new long[EVENT_TYPE_COUNT];
+    private static volatile boolean suppressionPending;
 
     private LoggerUtil() {
     }
 
-    public static synchronized void init(Path dataDirectory) {
-        try {
-            Files.createDirectories(dataDirectory);
-            logFile = dataDirectory.resolve("scheduler.log");
-            logs.clear();
-            if (Files.exists(logFile)) {
-                logs.addAll(Files.readAllLines(logFile, StandardCharsets.UTF_8));
-                trimLogs();
+    public static void init(Path dataDirectory) {
+        init(dataDirectory, LogRotation.defaults());
+    }
+
+    public static void init(Path dataDirectory, LogRotation rotation) {
+        // Outside the class lock: the writer takes it to publish its batches.
+        flush();
+        synchronized (LoggerUtil.class) {
+            clearRecentLocked();
+            synchronized (channelLock) {
+                try {
+                    if (eventLog != null) {
+                        eventLog.close();
+                    }
+                    eventLog = new EventLogFile(dataDirectory, rotation);
+                    for (SchedulerEvent event : eventLog.open(MAX_IN_MEMORY_LOGS)) {
+                        addRecentLocked(event);
+                    }
+                } catch (IOException exception) {
+                    System.err.println("Failed to initialize logger: " + exception.getMessage());
+                }
             }
-        } catch (IOException exception) {
-            System.err.println("Failed to initialize logger: " + exception.getMessage());
         }
     }
 
+    public static LogSettings getSettings() {
+        return logFilter.settings;
+    }
+
+    public static void configure(LogSettings settings) {
+        logFilter = new LogFilter(settings == null ? LogSettings.defaults() : settings);
+    }
+
     public static void log(String message) {
-        String entry = "[" + LocalDateTime.now().format(FORMATTER) + "] " + message;
+        log(LogLevel.INFO, message);
+    }
 
+    public static void log(LogLevel level, String message) {
+        publish(level, SchedulerEventType.MESSAGE, null, null, null, null, -1, 0L, 0L, 0L, message);
+    }
+
+    public static void event(SchedulerEventType type, String taskId, String taskName, String category) {
+        event(type, taskId, taskName, category, null, -1, 0L, 0L, 0L, null);
+    }
+
+    public static void event(
+            SchedulerEventType type,
+            String taskId,
+            String taskName,
+            String category,
+            long first,
+            long second,
+            long third
+    ) {
+        event(type, taskId, taskName, category, null, -1, first, second, third, null);
+    }
+
+    /**
+     * Records a structured event at its type's level. The meaning of the values is given by
+     * the event type; {@code category} only selects thresholds and is not stored.
+     * {@code detail} is turned into text by the writer thread, so pass a string or one of the
+     * scheduler's own values such as an enum; text from payload code is rendered by the caller.
+     */
+    public static void event(
+            SchedulerEventType type,
+            String taskId,
+            String taskName,
+            String category,
+            String relatedName,
+            int lane,
+            long first,
+            long second,
+            long third,
+            Object detail
+    ) {
+        publish(type.getLevel(), type, taskId, taskName, category, relatedName, lane, first, second, third, detail);
+    }
+
+    private static void publish(
+            LogLevel level,
+            SchedulerEventType type,
+            String taskId,
+            String taskName,
+            String category,
+            String relatedName,
+            int lane,
+            long first,
+            long second,
+            long third,
+            Object detail
+    ) {
+        LogFilter filter = logFilter;
+        if (!filter.accepts(level, type, category)) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (filter.settings.maxEventsPerSecond() > 0
+                && isSampled(level, type)
+                && !sample(type, now, filter.settings.maxEventsPerSecond())) {
+            return;
+        }
+
+        long sequence = claimSequence();
+        if (sequence < 0L) {
+            droppedEntries.incrementAndGet();
+            return;
+        }
+        int slot = (int) (sequence & RING_MASK);
+        ringTimestamps[slot] = now;
+        ringTypes[slot] = type;
+        ringTaskIds[slot] = taskId;
+        ringTaskNames[slot] = taskName;
+        ringRelatedNames[slot] = relatedName;
+        ringLanes[slot] = lane;
+        ringValues[slot * 3] = first;
+        ringValues[slot * 3 + 1] = second;
+        ringValues[slot * 3 + 2] = third;
+        ringDetails[slot] = detail;
+        ringPublished.set(slot, sequence + 1L);
+        if (writerParked) {
+            LockSupport.unpark(writerThread);
+        }
+    }
+
+    /**
+     * Claims the next ring slot, waiting up to {@link #PUBLISH_WAIT_NS} for the writer to free
+     * one. Returns -1 if it does not; while drops are still unreported, gives up at once.
+     */
+    private static long claimSequence() {
+        long deadline = 0L;
+        while (true) {
+            long sequence = nextSequence.get();
+            if (sequence - consumedSequence < RING_CAPACITY) {
+                if (nextSequence.compareAndSet(sequence, sequence + 1L)) {
+                    return sequence;
+                }
+                continue;
+            }
+            if (droppedEntries.get() > 0L) {
+                return -1L;
+            }
+            long now = System.nanoTime();
+            if (deadline == 0L) {
+                deadline = now + PUBLISH_WAIT_NS;
+            } else if (now - deadline >= 0L) {
+                return -1L;
+            }
+            LockSupport.unpark(writerThread);
+            LockSupport.parkNanos(50_000L);
+        }
+    }
+
+    /**
+     * Waits until every entry logged before the call has been written.
+     */
+    public static void flush() {
+        long target = nextSequence.get();
+        long deadline = System.currentTimeMillis() + FLUSH_TIMEOUT_MS;
+        while (writtenSequence < target && System.currentTimeMillis() < deadline) {
+            LockSupport.unpark(writerThread);
+            LockSupport.parkNanos(100_000L);
+        }
+    }
+
+    public static List<String> getLogs() {
+        return getLogsSince(0L).lines();
+    }
+
+    /**
+     * Lines logged at or after {@code sequence} that are still held in memory. Only the
+     * entries in range are copied out, and they are rendered outside the lock.
+     */
+    public static LogSlice getLogsSince(long sequence) {
+        SchedulerEvent[] events;
+        long fromSequence;
+        long nextSequence;
         synchronized (LoggerUtil.class) {
-            logs.add(entry);
-            trimLogs();
+            nextSequence = recentEnd;
+            fromSequence = Math.min(Math.max(sequence, recentStart), nextSequence);
+            if (fromSequence == nextSequence) {
+                return new LogSlice(fromSequence, nextSequence, List.of());
+            }
+            events = new SchedulerEvent[(int) (nextSequence - fromSequence)];
+            for (int index = 0; index < events.length; index++) {
+                events[index] = recentEvents[recentSlot(fromSequence + index)];
+            }
+        }
+
+        List<String> lines = new ArrayList<>(events.length);
+        for (SchedulerEvent event : events) {
+            lines.add(event.render());
+        }
+        return new LogSlice(fromSequence, nextSequence, Collections.unmodifiableList(lines));
+    }
+
+    public static void exportToFile(Path targetFile) throws IOException {
+        flush();
+        Files.write(targetFile, getLogs(), StandardCharsets.UTF_8);
+    }
+
+    public static synchronized void clearInMemoryLogs() {
+        clearRecentLocked();
+    }
 
-            if (logFile != null) {
+    private static Thread startWriter() {
+        Thread thread = new Thread(LoggerUtil::runWriter, "scheduler-log-writer");
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    private static void runWriter() {
+        List<SchedulerEvent> batch = new ArrayList<>(MAX_BATCH_ENTRIES);
+        SchedulerEvent.Output output = new SchedulerEvent.Output();
+        CRC32 crc = new CRC32();
+        long sequence = 0L;
+        while (true) {
+            int slot = (int) (sequence & RING_MASK);
+            if (ringPublished.get(slot) != sequence + 1L) {
+                if (suppressionPending) {
+                    appendSuppressionSummaries(batch, output, crc);
+                }
+                if (droppedEntries.get() > 0L) {
+                    appendDroppedSummary(batch, output, crc);
+                }
+                if (!batch.isEmpty()) {
+                    writeBatch(batch, output, sequence);
+                    output.reset();
+                    batch.clear();
+                    continue;
+                }
+                writerParked = true;
+                // Re-checked after raising the flag, so a publish in between is not missed.
+                if (ringPublished.get(slot) != sequence + 1L) {
+                    LockSupport.parkNanos(WRITER_IDLE_PARK_NS);
+                }
+                writerParked = false;
+                continue;
+            }
+
+            SchedulerEvent event = null;
+            try {
+                event = readSlot(slot);
+            } catch (RuntimeException exception) {
+                System.err.println("Failed to record a log entry: " + exception);
+            }
+            ringTaskIds[slot] = null;
+            ringTaskNames[slot] = null;
+            ringRelatedNames[slot] = null;
+            ringDetails[slot] = null;
+            sequence++;
+            consumedSequence = sequence;
+
+            if (event != null) {
+                int frameStart = output.size();
+                try {
+                    EventLogFile.writeFrame(event, output, crc);
+                    batch.add(event);
+                } catch (RuntimeException exception) {
+                    output.truncate(frameStart);
+                    System.err.println("Failed to encode a log entry: " + exception);
+                }
+            }
+            if (batch.size() >= MAX_BATCH_ENTRIES) {
+                if (suppressionPending) {
+                    appendSuppressionSummaries(batch, output, crc);
+                }
+                if (droppedEntries.get() > 0L) {
+                    appendDroppedSummary(batch, output, crc);
+                }
+                writeBatch(batch, output, sequence);
+                output.reset();
+                batch.clear();
+            }
+        }
+    }
+
+    private static SchedulerEvent readSlot(int slot) {
+        Object detail = ringDetails[slot];
+        return new SchedulerEvent(
+                ringTimestamps[slot],
+                ringTypes[slot],
+                ringTaskIds[slot],
+                ringTaskNames[slot],
+                ringRelatedNames[slot],
+                ringLanes[slot],
+                ringValues[slot * 3],
+                ringValues[slot * 3 + 1],
+                ringValues[slot * 3 + 2],
+                detail == null ? null : detail.toString()
+        );
+    }
+
+    private static void writeBatch(List<SchedulerEvent> batch, SchedulerEvent.Output output, long throughSequence) {
+        synchronized (LoggerUtil.class) {
+            for (SchedulerEvent event : batch) {
+                addRecentLocked(event);
+            }
+        }
+
+        synchronized (channelLock) {
+            if (eventLog != null) {
                 try {
-                    Files.writeString(
-                            logFile,
-                            entry + System.lineSeparator(),
-                            StandardCharsets.UTF_8,
-                            StandardOpenOption.CREATE,
-                            StandardOpenOption.APPEND
+                    eventLog.append(output.array(), output.size());
+                } catch (IOException | RuntimeException exception) {
+                    System.err.println("Failed to write log entries: " + exception.getMessage());
+                }
+            }
+        }
+        if (CONSOLE_ECHO) {
+            StringBuilder text = new StringBuilder(batch.size() * 96);
+            for (SchedulerEvent event : batch) {
+                text.append(event.render()).append(System.lineSeparator());
+            }
+            System.out.print(text);
+        }
+        writtenSequence = throughSequence;
+    }
+
+    // Only the routine Debug and Info task events flood; warnings, errors and free text are always kept.
+    private static boolean isSampled(LogLevel level, SchedulerEventType type) {
+        return level.compareTo(LogLevel.WARN) < 0 && type != SchedulerEventType.MESSAGE;
+    }
+
+    private static boolean sample(SchedulerEventType type, long now, int maxEventsPerSecond) {
+        int index = type.ordinal();
+        synchronized (samplingLock) {
+            if (now - samplingWindowStartedAt[index] >= SAMPLING_WINDOW_MS) {
+                samplingWindowStartedAt[index] = now;
+                samplingWindowCounts[index] = 0;
+                if (suppressedCounts[index] > 0L) {
+                    pendingSummaries[index] += suppressedCounts[index];
+                    suppressedCounts[index] = 0L;
+                }
+            }
+            if (samplingWindowCounts[index] < maxEventsPerSecond) {
+                samplingWindowCounts[index]++;
+                return true;
+            }
+            suppressedCounts[index]++;
+            suppressionPending = true;
+            return false;
+        }
+    }
+
+    // Runs on the writer, which cannot publish into its own ring, so summaries join the batch directly.
+    private static void appendSuppressionSummaries(List<SchedulerEvent> batch, SchedulerEvent.Output output, CRC32 crc) {
+        long now = System.currentTimeMillis();
+        SchedulerEventType[] types = SchedulerEventType.values();
+        synchronized (samplingLock) {
+            boolean stillPending = false;
+            for (int index = 0; index < EVENT_TYPE_COUNT; index++) {
+                long suppressed = pendingSummaries[index];
+                pendingSummaries[index] = 0L;
+                if (suppressedCounts[index] > 0L) {
+                    if (now - samplingWindowStartedAt[index] >= SAMPLING_WINDOW_MS) {
+                        suppressed += suppressedCounts[index];
+                        suppressedCounts[index] = 0L;
+                    } else {
+                        stillPending = true;
+                    }
+                }
+                if (suppressed > 0L) {
+                    SchedulerEvent summary = new SchedulerEvent(
+                            now, SchedulerEventType.SUPPRESSED, null, null, null, -1, suppressed, 0L, 0L, types[index].name()
                     );
-                } catch (IOException exception) {
-                    System.err.println("Failed to write log entry: " + exception.getMessage());
+                    batch.add(summary);
+                    EventLogFile.writeFrame(summary, output, crc);
                 }
             }
+            suppressionPending = stillPending;
         }
+    }
 
-        System.out.println(entry);
+    private static void appendDroppedSummary(List<SchedulerEvent> batch, SchedulerEvent.Output output, CRC32 crc) {
+        SchedulerEvent summary = new SchedulerEvent(
+                System.currentTimeMillis(), SchedulerEventType.DROPPED, null, null, null, -1,
+                droppedEntries.getAndSet(0L), 0L, 0L, null
+        );
+        batch.add(summary);
+        EventLogFile.writeFrame(summary, output, crc);
     }
 
-    public static synchronized List<String> getLogs() {
-        return new ArrayList<>(logs);
+    private static void addRecentLocked(SchedulerEvent event) {
+        recentEvents[recentSlot(recentEnd)] = event;
+        recentEnd++;
+        if (recentEnd - recentStart > MAX_IN_MEMORY_LOGS) {
+            recentStart = recentEnd - MAX_IN_MEMORY_LOGS;
+        }
     }
 
-    public static synchronized void exportToFile(Path targetFile) throws IOException {
-        Files.write(targetFile, logs, StandardCharsets.UTF_8);
+    // Sequences keep counting, so readers holding an old cursor simply see nothing new.
+    private static void clearRecentLocked() {
+        Arrays.fill(recentEvents, null);
+        recentStart = recentEnd;
     }
 
-    public static synchronized void clearInMemoryLogs() {
-        logs.clear();
+    private static int recentSlot(long sequence) {
+        return (int) (sequence % MAX_IN_MEMORY_LOGS);
     }
 
-    private static void trimLogs() {
-        while (logs.size() > MAX_IN_MEMORY_LOGS) {
-            logs.remove(0);
+    /**
+     * {@link LogSettings} resolved for the logging hot path: thresholds by event type ordinal
+     * and a case-insensitive category map, so checks neither allocate nor normalize.
+     */
+    private static final class LogFilter {
+        private final LogSettings settings;
+        private final LogLevel[] eventTypeLevels = new LogLevel[EVENT_TYPE_COUNT];
+        private final Map<String, LogLevel> categoryLevels = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+        private LogFilter(LogSettings settings) {
+            this.settings = settings;
+            settings.eventTypeLevels().forEach((type, level) -> eventTypeLevels[type.ordinal()] = level);
+            categoryLevels.putAll(settings.categoryLevels());
+        }
+
+        private boolean accepts(LogLevel level, SchedulerEventType type, String category) {
+            LogLevel threshold = eventTypeLevels[type.ordinal()];
+            if (threshold == null && category != null && !categoryLevels.isEmpty()) {
+                threshold = categoryLevels.get(category);
+            }
+            if (threshold == null) {
+                threshold = settings.minimumLevel();
+            }
+            return level.compareTo(threshold) >= 0;
         }
     }
 }
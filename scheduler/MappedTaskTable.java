@@ -0,0 +1,441 @@
+package scheduler;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * Active tasks as fixed-size records in a memory-mapped file, updated in place.
+ *
+ * <p>A record holds the fields ordinary transitions change (status, remaining time, timestamps,
+ * preemption count, the open execution segment) and points at the task's descriptor: its full
+ * {@link TaskCodec} encoding, appended to a {@code tasks.strings.<generation>} side file. A
+ * transition that only touches the core is a handful of stores into the mapped buffer; a new
+ * descriptor is appended only when something else changed. Records carry a CRC32, so a torn
+ * record falls back to its descriptor. Not thread-safe; callers guard it with their own lock.</p>
+ */
+public class MappedTaskTable implements Closeable {
+    private static final byte[] MAGIC = {'R', 'T', 'T', 'B'};
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 64;
+    // 128-byte records never straddle a page.
+    private static final int RECORD_BYTES = 128;
+    private static final int RECORD_STATE_OFFSET = 0;
+    private static final int RECORD_CRC_OFFSET = 4;
+    private static final int RECORD_BODY_OFFSET = 8;
+    private static final int RECORD_BODY_BYTES = 80;
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int MAX_DESCRIPTOR_BYTES = 16 * 1024 * 1024;
+    private static final long MIN_COMPACTION_BYTES = 1L << 20;
+    private static final String TABLE_FILE_NAME = "tasks.table";
+    private static final String STRINGS_FILE_PREFIX = "tasks.strings.";
+
+    private final Path dataDirectory;
+    private final Path tableFile;
+    private final Map<String, Slot> slotsById = new HashMap<>();
+    private final ArrayDeque<Integer> freeSlots = new ArrayDeque<>();
+    private final CRC32 checksum = new CRC32();
+    private final ByteBuffer recordBuffer = ByteBuffer.allocate(RECORD_BYTES);
+
+    private FileChannel tableChannel;
+    private MappedByteBuffer table;
+    private int capacity;
+    private long stringsGeneration;
+    private FileChannel stringsChannel;
+    private long stringsBytes;
+    private long liveStringsBytes;
+
+    public MappedTaskTable(Path dataDirectory) {
+        this.dataDirectory = dataDirectory;
+        this.tableFile = dataDirectory.resolve(TABLE_FILE_NAME);
+    }
+
+    public static boolean exists(Path dataDirectory) {
+        return Files.exists(dataDirectory.resolve(TABLE_FILE_NAME));
+    }
+
+    /**
+     * Removes the table and its side files, after their tasks have been stored elsewhere.
+     */
+    public static void delete(Path dataDirectory) throws IOException {
+        Files.deleteIfExists(dataDirectory.resolve(TABLE_FILE_NAME));
+        for (Path stringsFile : listStringsFiles(dataDirectory).values()) {
+            Files.deleteIfExists(stringsFile);
+        }
+    }
+
+    public Path getTableFile() {
+        return tableFile;
+    }
+
+    public int size() {
+        return slotsById.size();
+    }
+
+    public Set<String> taskIds() {
+        return new HashSet<>(slotsById.keySet());
+    }
+
+    /**
+     * Opens or creates the table and returns the tasks it holds.
+     */
+    public List<ScheduledTask> open() throws IOException {
+        Files.createDirectories(dataDirectory);
+        boolean created = !Files.exists(tableFile);
+        tableChannel = FileChannel.open(tableFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (created || tableChannel.size() < HEADER_BYTES) {
+            capacity = INITIAL_CAPACITY;
+            stringsGeneration = 1L;
+            table = tableChannel.map(FileChannel.MapMode.READ_WRITE, 0L, mappedBytes(capacity));
+            writeHeader();
+        } else {
+            MappedByteBuffer header = tableChannel.map(FileChannel.MapMode.READ_WRITE, 0L, HEADER_BYTES);
+            for (byte expected : MAGIC) {
+                if (header.get() != expected) {
+                    throw new IOException("Not a task table: " + tableFile);
+                }
+            }
+            int version = header.getInt();
+            int recordBytes = header.getInt();
+            if (version > VERSION || recordBytes != RECORD_BYTES) {
+                throw new IOException("Unsupported task table version " + version + ".");
+            }
+            capacity = header.getInt();
+            stringsGeneration = header.getLong();
+            table = tableChannel.map(FileChannel.MapMode.READ_WRITE, 0L, mappedBytes(capacity));
+        }
+
+        Map<Long, Path> stringsFiles = listStringsFiles(dataDirectory);
+        Map<Long, FileChannel> readers = new HashMap<>();
+        List<ScheduledTask> tasks = new ArrayList<>();
+        boolean needsCompaction = false;
+        try {
+            for (int index = capacity - 1; index >= 0; index--) {
+                int recordAt = recordOffset(index);
+                if (table.getInt(recordAt + RECORD_STATE_OFFSET) == 0) {
+                    freeSlots.push(index);
+                    continue;
+                }
+
+                ByteBuffer body = table.slice(recordAt + RECORD_BODY_OFFSET, RECORD_BODY_BYTES);
+                checksum.reset();
+                checksum.update(body.duplicate());
+                boolean recordIntact = (int) checksum.getValue() == table.getInt(recordAt + RECORD_CRC_OFFSET);
+                long generation = body.getLong();
+                long descriptorOffset = body.getLong();
+                int descriptorLength = body.getInt();
+
+                ScheduledTask task = null;
+                Path stringsFile = stringsFiles.get(generation);
+                if (stringsFile != null && descriptorLength > 0 && descriptorLength <= MAX_DESCRIPTOR_BYTES) {
+                    FileChannel reader = readers.get(generation);
+                    if (reader == null) {
+                        reader = FileChannel.open(stringsFile, StandardOpenOption.READ);
+                        readers.put(generation, reader);
+                    }
+                    task = readDescriptor(reader, descriptorOffset, descriptorLength);
+                }
+                if (task == null) {
+                    System.err.println("Task table record " + index + " has no readable descriptor; dropping it.");
+                    clearRecord(index);
+                    freeSlots.push(index);
+                    continue;
+                }
+
+                ScheduledTask descriptor = task.copy();
+                if (!recordIntact || !task.applyCoreState(body)) {
+                    System.err.println("Task table record " + index + " is damaged; using its descriptor.");
+                }
+                slotsById.put(task.getId(), new Slot(index, descriptor, generation, descriptorOffset, descriptorLength));
+                liveStringsBytes += descriptorLength;
+                needsCompaction |= generation != stringsGeneration;
+                tasks.add(task);
+            }
+        } finally {
+            for (FileChannel reader : readers.values()) {
+                reader.close();
+            }
+        }
+
+        openStringsFile();
+        if (needsCompaction || shouldCompact()) {
+            compact();
+        }
+        for (Map.Entry<Long, Path> stringsFile : stringsFiles.entrySet()) {
+            if (stringsFile.getKey() != stringsGeneration) {
+                Files.deleteIfExists(stringsFile.getValue());
+            }
+        }
+        return tasks;
+    }
+
+    /**
+     * Stores an active task, which must be a copy nobody mutates afterwards. Returns
+     * {@code true} when a new descriptor had to be written.
+     */
+    public boolean put(ScheduledTask task) throws IOException {
+        Slot slot = slotsById.get(task.getId());
+        boolean descriptorChanged = slot == null || !task.matchesDescriptor(slot.descriptor);
+        if (slot == null) {
+            slot = new Slot(takeFreeSlot(), task, 0L, 0L, 0);
+            slotsById.put(task.getId(), slot);
+        }
+        if (descriptorChanged) {
+            liveStringsBytes -= slot.descriptorLength;
+            byte[] frame = frame(TaskCodec.encode(List.of(task)));
+            slot.descriptor = task;
+            slot.generation = stringsGeneration;
+            slot.descriptorOffset = stringsBytes;
+            slot.descriptorLength = frame.length;
+            writeFully(stringsChannel, ByteBuffer.wrap(frame), stringsBytes);
+            stringsBytes += frame.length;
+            liveStringsBytes += frame.length;
+        }
+        writeRecord(slot, task);
+        return descriptorChanged;
+    }
+
+    public void remove(String taskId) {
+        Slot slot = slotsById.remove(taskId);
+        if (slot == null) {
+            return;
+        }
+        liveStringsBytes -= slot.descriptorLength;
+        clearRecord(slot.index);
+        freeSlots.push(slot.index);
+    }
+
+    /**
+     * Rewrites the side file with live descriptors only, once it is mostly garbage.
+     */
+    public void compactIfNeeded() throws IOException {
+        if (shouldCompact()) {
+            compact();
+        }
+    }
+
+    public void force() throws IOException {
+        table.force();
+        stringsChannel.force(false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (stringsChannel != null) {
+            stringsChannel.close();
+        }
+        if (tableChannel != null) {
+            tableChannel.close();
+        }
+    }
+
+    private boolean shouldCompact() {
+        return stringsBytes >= MIN_COMPACTION_BYTES && stringsBytes > 2L * liveStringsBytes;
+    }
+
+    // The new side file is complete and forced before any record points at it, and the old
+    // one is deleted only after every record does, so a crash leaves both readable.
+    private void compact() throws IOException {
+        long nextGeneration = stringsGeneration + 1L;
+        Path nextFile = stringsFile(nextGeneration);
+        Map<Long, FileChannel> readers = new HashMap<>();
+        long written = 0L;
+        try (FileChannel next = FileChannel.open(nextFile, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (Slot slot : slotsById.values()) {
+                FileChannel reader = slot.generation == stringsGeneration ? stringsChannel : readers.get(slot.generation);
+                if (reader == null) {
+                    reader = FileChannel.open(stringsFile(slot.generation), StandardOpenOption.READ);
+                    readers.put(slot.generation, reader);
+                }
+                ByteBuffer frame = ByteBuffer.allocate(slot.descriptorLength);
+                readFully(reader, frame, slot.descriptorOffset);
+                frame.flip();
+                writeFully(next, frame, written);
+                slot.generation = nextGeneration;
+                slot.descriptorOffset = written;
+                written += slot.descriptorLength;
+            }
+            next.force(false);
+        } finally {
+            for (FileChannel reader : readers.values()) {
+                reader.close();
+            }
+        }
+
+        for (Slot slot : slotsById.values()) {
+            writeRecord(slot, null);
+        }
+        long previousGeneration = stringsGeneration;
+        stringsGeneration = nextGeneration;
+        writeHeader();
+        table.force();
+
+        stringsChannel.close();
+        Files.deleteIfExists(stringsFile(previousGeneration));
+        openStringsFile();
+        liveStringsBytes = written;
+    }
+
+    private void openStringsFile() throws IOException {
+        stringsChannel = FileChannel.open(stringsFile(stringsGeneration),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        stringsBytes = stringsChannel.size();
+    }
+
+    private int takeFreeSlot() throws IOException {
+        if (freeSlots.isEmpty()) {
+            int previousCapacity = capacity;
+            capacity *= 2;
+            table.force();
+            table = tableChannel.map(FileChannel.MapMode.READ_WRITE, 0L, mappedBytes(capacity));
+            writeHeader();
+            for (int index = capacity - 1; index >= previousCapacity; index--) {
+                freeSlots.push(index);
+            }
+        }
+        return freeSlots.pop();
+    }
+
+    // A null task rewrites only the descriptor pointer and keeps the stored core.
+    private void writeRecord(Slot slot, ScheduledTask task) {
+        int recordAt = recordOffset(slot.index);
+        recordBuffer.clear();
+        recordBuffer.putLong(slot.generation);
+        recordBuffer.putLong(slot.descriptorOffset);
+        recordBuffer.putInt(slot.descriptorLength);
+        if (task != null) {
+            task.writeCoreState(recordBuffer);
+        } else {
+            recordBuffer.put(table.slice(recordAt + RECORD_BODY_OFFSET + 20, RECORD_BODY_BYTES - 20));
+        }
+        recordBuffer.flip();
+        checksum.reset();
+        checksum.update(recordBuffer.duplicate());
+        table.put(recordAt + RECORD_BODY_OFFSET, recordBuffer, 0, RECORD_BODY_BYTES);
+        table.putInt(recordAt + RECORD_CRC_OFFSET, (int) checksum.getValue());
+        table.putInt(recordAt + RECORD_STATE_OFFSET, 1);
+    }
+
+    private void clearRecord(int index) {
+        table.putInt(recordOffset(index) + RECORD_STATE_OFFSET, 0);
+    }
+
+    private void writeHeader() {
+        table.put(0, MAGIC);
+        table.putInt(4, VERSION);
+        table.putInt(8, RECORD_BYTES);
+        table.putInt(12, capacity);
+        table.putLong(16, stringsGeneration);
+    }
+
+    private static ScheduledTask readDescriptor(FileChannel reader, long offset, int length) {
+        try {
+            ByteBuffer frame = ByteBuffer.allocate(length);
+            readFully(reader, frame, offset);
+            frame.flip();
+            int payloadLength = frame.getInt();
+            int expectedChecksum = frame.getInt();
+            if (payloadLength != length - 8) {
+                return null;
+            }
+            byte[] payload = new byte[payloadLength];
+            frame.get(payload);
+            CRC32 payloadChecksum = new CRC32();
+            payloadChecksum.update(payload);
+            if ((int) payloadChecksum.getValue() != expectedChecksum) {
+                return null;
+            }
+            List<ScheduledTask> tasks = TaskCodec.decode(payload);
+            return tasks.size() == 1 ? tasks.get(0) : null;
+        } catch (IOException exception) {
+            return null;
+        }
+    }
+
+    // Same {length, CRC32, payload} framing as the journal.
+    private static byte[] frame(byte[] payload) {
+        CRC32 payloadChecksum = new CRC32();
+        payloadChecksum.update(payload);
+        ByteBuffer frame = ByteBuffer.allocate(payload.length + 8);
+        frame.putInt(payload.length);
+        frame.putInt((int) payloadChecksum.getValue());
+        frame.put(payload);
+        return frame.array();
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new IOException("Unexpected end of task descriptor file.");
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        long writeAt = position;
+        while (buffer.hasRemaining()) {
+            writeAt += channel.write(buffer, writeAt);
+        }
+    }
+
+    private static long mappedBytes(int capacity) {
+        return HEADER_BYTES + (long) capacity * RECORD_BYTES;
+    }
+
+    private static int recordOffset(int index) {
+        return HEADER_BYTES + index * RECORD_BYTES;
+    }
+
+    private Path stringsFile(long generation) {
+        return dataDirectory.resolve(STRINGS_FILE_PREFIX + generation);
+    }
+
+    private static Map<Long, Path> listStringsFiles(Path dataDirectory) throws IOException {
+        Map<Long, Path> files = new HashMap<>();
+        if (!Files.isDirectory(dataDirectory)) {
+            return files;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dataDirectory, STRINGS_FILE_PREFIX + "*")) {
+            for (Path file : stream) {
+                try {
+                    files.put(Long.parseLong(file.getFileName().toString().substring(STRINGS_FILE_PREFIX.length())), file);
+                } catch (NumberFormatException ignored) {
+                    // Not one of ours.
+                }
+            }
+        }
+        return files;
+    }
+
+    private static final class Slot {
+        private final int index;
+        private ScheduledTask descriptor;
+        private long generation;
+        private long descriptorOffset;
+        private int descriptorLength;
+
+        private Slot(int index, ScheduledTask descriptor, long generation, long descriptorOffset, int descriptorLength) {
+            this.index = index;
+            this.descriptor = descriptor;
+            this.generation = generation;
+            this.descriptorOffset = descriptorOffset;
+            this.descriptorLength = descriptorLength;
+        }
+    }
+}
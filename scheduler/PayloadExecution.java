@@ -0,0 +1,122 @@
+package scheduler;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Runs one task payload on the engine's payload executor and tracks whether the task
+ * currently holds an execution lane. Uses a {@link ReentrantLock} rather than a monitor so
+ * a parked payload does not pin a carrier thread when running on virtual threads.
+ */
+public class PayloadExecution implements TaskCheckpoint {
+    private final String taskName;
+    private final TaskPayload payload;
+    private final Runnable onFinished;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition dispatched = lock.newCondition();
+
+    private boolean permitted;
+    private boolean canceled;
+    private volatile boolean finished;
+    private volatile Throwable failure;
+    private Future<?> future;
+
+    public PayloadExecution(String taskName, TaskPayload payload, Runnable onFinished) {
+        this.taskName = taskName;
+        this.payload = payload;
+        this.onFinished = onFinished;
+    }
+
+    public void start(ExecutorService executor) {
+        grant();
+        future = executor.submit(this::execute);
+    }
+
+    public void grant() {
+        lock.lock();
+        try {
+            permitted = true;
+            dispatched.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void revoke() {
+        lock.lock();
+        try {
+            permitted = false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void cancel() {
+        lock.lock();
+        try {
+            canceled = true;
+            dispatched.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        if (future != null) {
+            future.cancel(true);
+        }
+    }
+
+    @Override
+    public void checkpoint() throws InterruptedException {
+        lock.lock();
+        try {
+            while (!permitted && !canceled) {
+                dispatched.await();
+            }
+            if (canceled) {
+                throw new CancellationException("Task '" + taskName + "' was stopped by the scheduler.");
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isCancellationRequested() {
+        lock.lock();
+        try {
+            return canceled;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    public boolean isCanceled() {
+        return isCancellationRequested();
+    }
+
+    public Throwable getFailure() {
+        return failure;
+    }
+
+    private void execute() {
+        try {
+            checkpoint();
+            payload.run(this);
+        } catch (CancellationException | InterruptedException stopped) {
+            if (!isCancellationRequested()) {
+                failure = stopped;
+            }
+        } catch (Throwable throwable) {
+            failure = throwable;
+        } finally {
+            finished = true;
+            onFinished.run();
+        }
+    }
+}
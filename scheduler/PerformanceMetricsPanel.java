@@ -22,9 +22,11 @@ public class PerformanceMetricsPanel extends JPanel {
     private final JLabel avgWaitTimeLabel = new JLabel("Avg Wait Time: 0 ms");
     private final JLabel onTimeRateLabel = new JLabel("On-Time Rate: 100%");
     private final JLabel preemptionsLabel = new JLabel("Total Preemptions: 0");
+    private final JLabel lanesLabel = new JLabel("Execution Lanes: 0/1 busy • 0% utilized");
+    private final JLabel diskSyncsLabel = new JLabel("Disk Syncs: 0");
 
     public PerformanceMetricsPanel() {
-        setLayout(new GridLayout(16, 1, 4, 4));
+        setLayout(new GridLayout(18, 1, 4, 4));
         setBorder(BorderFactory.createTitledBorder("Local Scheduler Health"));
         add(totalTasksLabel);
         add(activeTasksLabel);
@@ -42,6 +44,8 @@ public class PerformanceMetricsPanel extends JPanel {
         add(avgWaitTimeLabel);
         add(onTimeRateLabel);
         add(preemptionsLabel);
+        add(lanesLabel);
+        add(diskSyncsLabel);
     }
 
     public void updateMetrics(SchedulerMetrics metrics) {
@@ -61,5 +65,17 @@ public class PerformanceMetricsPanel extends JPanel {
         avgWaitTimeLabel.setText("Avg Wait Time: " + metrics.averageWaitTimeMs() + " ms");
         onTimeRateLabel.setText("On-Time Rate: " + metrics.onTimeCompletionRate() + "%");
         preemptionsLabel.setText("Total Preemptions: " + metrics.totalPreemptions());
+        lanesLabel.setText(
+                "Execution Lanes: " + metrics.busyLanes() + "/" + metrics.executionLanes()
+                        + " busy • " + metrics.laneUtilizationPercent() + "% utilized"
+        );
+        SyncStatistics syncStatistics = metrics.syncStatistics();
+        diskSyncsLabel.setText(String.format(
+                "Disk Syncs: %d • avg %.2f ms • max %.2f ms (%s)",
+                syncStatistics.syncCount(),
+                syncStatistics.averageSyncMs(),
+                syncStatistics.maxSyncMs(),
+                syncStatistics.syncPolicy()
+        ));
     }
 }
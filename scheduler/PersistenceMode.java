@@ -0,0 +1,37 @@
+package scheduler;
+
+/**
+ * How active tasks are stored between checkpoints. Finished tasks go to the history
+ * segments in every mode.
+ */
+public enum PersistenceMode {
+    /** Changes are saved by rewriting the {@code tasks.dat} snapshot. */
+    SNAPSHOT("Snapshot"),
+    /** Changes are appended to {@code tasks.journal}, which checkpoints compact into the snapshot. */
+    JOURNAL("Journal"),
+    /** Active tasks are updated in place in the memory-mapped {@code tasks.table}. */
+    MAPPED("Memory-mapped");
+
+    private final String displayName;
+
+    PersistenceMode(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public static PersistenceMode fromProperty(String value) {
+        if (value != null) {
+            String normalized = value.trim().replace('-', '_');
+            for (PersistenceMode mode : values()) {
+                if (mode.name().equalsIgnoreCase(normalized)) {
+                    return mode;
+                }
+            }
+        }
+        return JOURNAL;
+    }
+
+    @Override
+    public String toString() {
+        return displayName;
+    }
+}
@@ -0,0 +1,26 @@
+package scheduler;
+
+/**
+ * Why the dispatcher displaced a running task.
+ */
+public enum PreemptionReason {
+    DEADLINE_URGENCY,
+    EFFECTIVE_PRIORITY,
+    EARLIER_DEADLINE_SLACK,
+    SELECTED_POLICY;
+
+    private static final PreemptionReason[] VALUES = values();
+
+    static PreemptionReason fromCode(long code) {
+        return code >= 0L && code < VALUES.length ? VALUES[(int) code] : SELECTED_POLICY;
+    }
+
+    public String describe(long favoredPriority, long displacedPriority, String schedulingMode) {
+        return switch (this) {
+            case DEADLINE_URGENCY -> "deadline urgency";
+            case EFFECTIVE_PRIORITY -> "effective priority " + favoredPriority + " over " + displacedPriority;
+            case EARLIER_DEADLINE_SLACK -> "earlier deadline slack";
+            case SELECTED_POLICY -> "the selected " + schedulingMode + " policy";
+        };
+    }
+}
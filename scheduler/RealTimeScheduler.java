@@ -5,13 +5,43 @@ import javax.swing.SwingUtilities;
 
 public class RealTimeScheduler {
     private static final int MAX_TASKS = 5000;
+    private static final int EXECUTION_LANES = Math.max(1, Integer.getInteger("scheduler.lanes", 1));
+    private static final PersistenceMode PERSISTENCE_MODE =
+            PersistenceMode.fromProperty(System.getProperty("scheduler.persistence"));
+    private static final DurabilityLevel DURABILITY_LEVEL =
+            DurabilityLevel.fromProperty(System.getProperty("scheduler.durability"));
+    private static final long GROUP_COMMIT_WINDOW_MS = Long.getLong("scheduler.groupCommitMs", 20L);
+    private static final SyncPolicy SYNC_POLICY = SyncPolicy.fromProperty(System.getProperty("scheduler.sync"));
+    private static final long SYNC_INTERVAL_MS = Long.getLong("scheduler.syncIntervalMs", 1000L);
+    private static final HistoryRetention HISTORY_RETENTION = new HistoryRetention(
+            Long.getLong("scheduler.historyMaxAgeHours", 168L) * 3_600_000L,
+            Integer.getInteger("scheduler.historyMaxTasks", 2000),
+            Integer.getInteger("scheduler.historyMaxPerCategory", 0)
+    );
+    private static final LogRotation LOG_ROTATION = new LogRotation(
+            Long.getLong("scheduler.logMaxMb", 16L) * 1024L * 1024L,
+            Long.getLong("scheduler.logRotateHours", 24L) * 3_600_000L,
+            Integer.getInteger("scheduler.logMaxSegments", 10),
+            Boolean.parseBoolean(System.getProperty("scheduler.logCompress", "true"))
+    );
 
     public static void main(String[] args) {
-        SchedulerStateStore stateStore = new SchedulerStateStore();
-        LoggerUtil.init(stateStore.getDataDirectory());
+        SchedulerStateStore stateStore = new SchedulerStateStore(
+                SchedulerStateStore.defaultDataDirectory(),
+                PERSISTENCE_MODE,
+                DURABILITY_LEVEL,
+                GROUP_COMMIT_WINDOW_MS,
+                SYNC_POLICY,
+                SYNC_INTERVAL_MS
+        );
+        LoggerUtil.init(stateStore.getDataDirectory(), LOG_ROTATION);
 
-        SchedulerEngine engine = new SchedulerEngine(stateStore, MAX_TASKS);
-        Runtime.getRuntime().addShutdownHook(new Thread(engine::shutdownGracefully, "scheduler-shutdown"));
+        SchedulerEngine engine = new SchedulerEngine(stateStore, MAX_TASKS, EXECUTION_LANES);
+        engine.updateHistoryRetention(HISTORY_RETENTION);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            engine.shutdownGracefully();
+            LoggerUtil.flush();
+        }, "scheduler-shutdown"));
         engine.start();
 
         SwingUtilities.invokeLater(() -> {
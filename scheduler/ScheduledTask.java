@@ -1,11 +1,14 @@
 package scheduler;
 
+import java.io.IOException;
 import java.io.Serial;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 public class ScheduledTask implements Comparable<ScheduledTask>, Serializable {
     @Serial
@@ -41,13 +44,22 @@ public class ScheduledTask implements Comparable<ScheduledTask>, Serializable {
     private int retryAttempt;
     private String retryParentTaskId;
 
+    // Executable code is not persisted; a restored task without it runs as a simulation.
+    private transient TaskPayload payload;
+    // Told about every state transition so the owner can track which tasks need persisting.
+    private transient Consumer<ScheduledTask> changeListener;
+
     public ScheduledTask(TaskConfiguration configuration) {
+        this(configuration, System.currentTimeMillis());
+    }
+
+    public ScheduledTask(TaskConfiguration configuration, long now) {
         this(
                 UUID.randomUUID().toString(),
                 UUID.randomUUID().toString(),
                 1,
-                System.currentTimeMillis(),
-                System.currentTimeMillis(),
+                now,
+                now,
                 configuration,
                 0,
                 ""
@@ -95,6 +107,7 @@ public class ScheduledTask implements Comparable<ScheduledTask>, Serializable {
         this.retryBackoffMs = this.retryLimit == 0 ? 0L : Math.max(100L, configuration.retryBackoffMs());
         this.retryAttempt = Math.max(0, retryAttempt);
         this.retryParentTaskId = retryParentTaskId == null ? "" : retryParentTaskId;
+        this.payload = configuration.payload();
     }
 
     private ScheduledTask(ScheduledTask source) {
@@ -129,6 +142,195 @@ public class ScheduledTask implements Comparable<ScheduledTask>, Serializable {
         this.retryBackoffMs = source.retryBackoffMs;
         this.retryAttempt = source.retryAttempt;
         this.retryParentTaskId = source.retryParentTaskId;
+        this.payload = source.payload;
+    }
+
+    // Field order is the TaskCodec schema: append new fields at the end and read them only
+    // while the decoder has more bytes, so older and newer files stay readable.
+    ScheduledTask(TaskCodec.Decoder in) throws IOException {
+        this.id = in.readId();
+        this.seriesId = in.readId();
+        this.retryParentTaskId = in.readId();
+        this.createdAt = in.readSignedVarLong();
+        this.name = in.readString();
+        this.priority = in.readVarInt();
+        int statusOrdinal = in.readVarInt();
+        if (statusOrdinal >= TaskStatus.values().length) {
+            throw new IOException("Unknown task status " + statusOrdinal + ".");
+        }
+        this.status = TaskStatus.values()[statusOrdinal];
+        this.totalDurationMs = in.readVarLong();
+        this.remainingDurationMs = in.readVarLong();
+        this.deadlineEpochMs = in.readInstant(createdAt);
+        this.updatedAt = in.readInstant(createdAt);
+        this.firstStartedAt = in.readInstant(createdAt);
+        this.finishedAt = in.readInstant(createdAt);
+        this.preemptionCount = in.readVarInt();
+        this.category = in.readString();
+        int tagCount = in.readVarInt();
+        this.tags = new ArrayList<>(Math.min(tagCount, 64));
+        for (int index = 0; index < tagCount; index++) {
+            tags.add(in.readString());
+        }
+        this.notes = in.readString();
+        this.readyAtEpochMs = in.readInstant(createdAt);
+        this.deadlineOffsetMs = in.readVarLong();
+        this.recurrenceIntervalMs = in.readVarLong();
+        this.recurrenceLimit = in.readVarInt();
+        this.occurrenceIndex = in.readVarInt();
+        this.retryLimit = in.readVarInt();
+        this.retryBackoffMs = in.readVarLong();
+        this.retryAttempt = in.readVarInt();
+
+        int segmentCount = in.readVarInt();
+        this.executionSegments = new ArrayList<>(Math.min(segmentCount, 1024));
+        long previousEndedAt = createdAt;
+        for (int index = 0; index < segmentCount; index++) {
+            ExecutionSegment segment = new ExecutionSegment(in.readInstant(previousEndedAt));
+            segment.setEndedAt(segment.getStartedAt() + in.readVarLong());
+            executionSegments.add(segment);
+            previousEndedAt = segment.getEndedAt();
+        }
+        normalizeMutableFields();
+    }
+
+    synchronized void encode(TaskCodec.Encoder out) {
+        normalizeMutableFields();
+        out.writeId(id);
+        out.writeId(seriesId);
+        out.writeId(retryParentTaskId);
+        out.writeSignedVarLong(createdAt);
+        out.writeString(name);
+        out.writeVarInt(priority);
+        out.writeVarInt(status.ordinal());
+        out.writeVarLong(totalDurationMs);
+        out.writeVarLong(remainingDurationMs);
+        out.writeInstant(deadlineEpochMs, createdAt);
+        out.writeInstant(updatedAt, createdAt);
+        out.writeInstant(firstStartedAt, createdAt);
+        out.writeInstant(finishedAt, createdAt);
+        out.writeVarInt(preemptionCount);
+        out.writeString(category);
+        out.writeVarInt(tags.size());
+        for (String tag : tags) {
+            out.writeString(tag);
+        }
+        out.writeString(notes);
+        out.writeInstant(readyAtEpochMs, createdAt);
+        out.writeVarLong(deadlineOffsetMs);
+        out.writeVarLong(recurrenceIntervalMs);
+        out.writeVarInt(recurrenceLimit);
+        out.writeVarInt(occurrenceIndex);
+        out.writeVarInt(retryLimit);
+        out.writeVarLong(retryBackoffMs);
+        out.writeVarInt(retryAttempt);
+
+        out.writeVarInt(executionSegments.size());
+        long previousEndedAt = createdAt;
+        for (ExecutionSegment segment : executionSegments) {
+            out.writeInstant(segment.getStartedAt(), previousEndedAt);
+            out.writeVarLong(segment.getEndedAt() - segment.getStartedAt());
+            previousEndedAt = segment.getEndedAt();
+        }
+    }
+
+    // The fields ordinary transitions change, at fixed width, for MappedTaskTable. Only the
+    // last execution segment is included; earlier ones are closed and live in the descriptor.
+    synchronized void writeCoreState(ByteBuffer out) {
+        normalizeMutableFields();
+        ExecutionSegment lastSegment = executionSegments.isEmpty() ? null : executionSegments.get(executionSegments.size() - 1);
+        out.putInt(status.ordinal());
+        out.putLong(remainingDurationMs);
+        out.putLong(updatedAt);
+        out.putLong(firstStartedAt);
+        out.putLong(finishedAt);
+        out.putInt(preemptionCount);
+        out.putInt(executionSegments.size());
+        out.putLong(lastSegment == null ? 0L : lastSegment.startedAt);
+        out.putLong(lastSegment == null ? 0L : lastSegment.endedAt);
+    }
+
+    /**
+     * Overlays a core written by {@link #writeCoreState} onto this task, decoded from its
+     * descriptor. Returns {@code false}, leaving the task untouched, when the two do not line up.
+     */
+    synchronized boolean applyCoreState(ByteBuffer in) {
+        int statusOrdinal = in.getInt();
+        long remaining = in.getLong();
+        long updated = in.getLong();
+        long firstStarted = in.getLong();
+        long finished = in.getLong();
+        int preemptions = in.getInt();
+        int segmentCount = in.getInt();
+        long lastStartedAt = in.getLong();
+        long lastEndedAt = in.getLong();
+        if (statusOrdinal < 0 || statusOrdinal >= TaskStatus.values().length) {
+            return false;
+        }
+
+        int knownSegments = executionSegments.size();
+        if (segmentCount == knownSegments + 1) {
+            ExecutionSegment segment = new ExecutionSegment(lastStartedAt);
+            segment.setEndedAt(lastEndedAt);
+            executionSegments.add(segment);
+        } else if (segmentCount == knownSegments && segmentCount > 0
+                && executionSegments.get(segmentCount - 1).startedAt == lastStartedAt) {
+            executionSegments.get(segmentCount - 1).setEndedAt(lastEndedAt);
+        } else if (segmentCount != knownSegments) {
+            return false;
+        }
+
+        status = TaskStatus.values()[statusOrdinal];
+        remainingDurationMs = remaining;
+        updatedAt = updated;
+        firstStartedAt = firstStarted;
+        finishedAt = finished;
+        preemptionCount = preemptions;
+        return true;
+    }
+
+    /**
+     * True when everything outside the core state matches {@code descriptor}, so an in-place
+     * core update is enough to bring the stored copy up to date.
+     */
+    synchronized boolean matchesDescriptor(ScheduledTask descriptor) {
+        normalizeMutableFields();
+        if (!id.equals(descriptor.id)
+                || createdAt != descriptor.createdAt
+                || !Objects.equals(name, descriptor.name)
+                || priority != descriptor.priority
+                || totalDurationMs != descriptor.totalDurationMs
+                || deadlineEpochMs != descriptor.deadlineEpochMs
+                || !Objects.equals(category, descriptor.category)
+                || !Objects.equals(tags, descriptor.tags)
+                || !Objects.equals(notes, descriptor.notes)
+                || readyAtEpochMs != descriptor.readyAtEpochMs
+                || deadlineOffsetMs != descriptor.deadlineOffsetMs
+                || recurrenceIntervalMs != descriptor.recurrenceIntervalMs
+                || recurrenceLimit != descriptor.recurrenceLimit
+                || occurrenceIndex != descriptor.occurrenceIndex
+                || !Objects.equals(seriesId, descriptor.seriesId)
+                || retryLimit != descriptor.retryLimit
+                || retryBackoffMs != descriptor.retryBackoffMs
+                || retryAttempt != descriptor.retryAttempt
+                || !Objects.equals(retryParentTaskId, descriptor.retryParentTaskId)) {
+            return false;
+        }
+
+        int describedSegments = descriptor.executionSegments.size();
+        int extraSegments = executionSegments.size() - describedSegments;
+        if (extraSegments != 0 && extraSegments != 1) {
+            return false;
+        }
+        for (int index = 0; index < describedSegments; index++) {
+            ExecutionSegment mine = executionSegments.get(index);
+            ExecutionSegment described = descriptor.executionSegments.get(index);
+            boolean endCoveredByCore = index == executionSegments.size() - 1;
+            if (mine.startedAt != described.startedAt || (!endCoveredByCore && mine.endedAt != described.endedAt)) {
+                return false;
+            }
+        }
+        return true;
     }
 
     public synchronized ScheduledTask copy() {
@@ -138,6 +340,7 @@ public class ScheduledTask implements Comparable<ScheduledTask>, Serializable {
 
     public synchronized void prepareForRestore(long now) {
         normalizeMutableFields();
+        notifyChanged();
         closeOpenSegment(now);
 
         if (status.isTerminal()) {
@@ -165,6 +368,7 @@ public class ScheduledTask implements Comparable<ScheduledTask>, Serializable {
 
     public synchronized void markQueued(long now) {
         normalizeMutableFields();
+        notifyChanged();
         closeOpenSegment(now);
         if (!status.isTerminal()) {
             status = TaskStatus.QUEUED;
@@ -174,6 +378,7 @@ public class ScheduledTask implements Comparable<ScheduledTask>, Serializable {
 
     public synchronized void markRunning(long now) {
         normalizeMutableFields();
+        notifyChanged();
         if (status.isTerminal()) {
             return;
         }
@@ -187,6 +392,7 @@ public class ScheduledTask implements Comparable<ScheduledTask>, Serializable {
 
     public synchronized void markPaused(long now) {
         normalizeMutableFields();
+        notifyChanged();
         closeOpenSegment(now);
         if (!status.isTerminal()) {
             status = TaskStatus.PAUSED;
@@ -196,6 +402,7 @@ public class ScheduledTask implements Comparable<ScheduledTask>, Serializable {
 
     public synchronized void markCanceled(long now) {
         normalizeMutableFields();
+        notifyChanged();
         closeOpenSegment(now);
         status = TaskStatus.CANCELED;
         updatedAt = now;
@@ -204,6 +411,7 @@ public class ScheduledTask implements Comparable<ScheduledTask>, Serializable {
 
     public synchronized void markCompleted(long now) {
         normalizeMutableFields();
+        notifyChanged();
         remainingDurationMs = 0L;
         closeOpenSegment(now);
         status = TaskStatus.COMPLETED;
@@ -213,6 +421,7 @@ public class ScheduledTask implements Comparable<ScheduledTask>, Serializable {
 
     public synchronized void markMissed(long now) {
         normalizeMutableFields();
+        notifyChanged();
         closeOpenSegment(now);
         status = TaskStatus.MISSED;
         updatedAt = now;
@@ -221,6 +430,7 @@ public class ScheduledTask implements Comparable<ScheduledTask>, Serializable {
 
     public synchronized void recordPreemption(long now) {
         normalizeMutableFields();
+        notifyChanged();
         preemptionCount++;
         closeOpenSegment(now);
         if (!status.isTerminal()) {
@@ -231,11 +441,16 @@ public class ScheduledTask implements Comparable<ScheduledTask>, Serializable {
 
     public synchronized void consumeTimeSlice(long elapsedMs, long now) {
         normalizeMutableFields();
+        notifyChanged();
         if (status != TaskStatus.RUNNING) {
             return;
         }
 
         remainingDurationMs = Math.max(0L, remainingDurationMs - elapsedMs);
+        if (payload != null && remainingDurationMs == 0L) {
+            // A payload task finishes when its payload returns, not when its estimate runs out.
+            remainingDurationMs = 1L;
+        }
         if (!executionSegments.isEmpty()) {
             executionSegments.get(executionSegments.size() - 1).setEndedAt(now);
         }
@@ -244,6 +459,7 @@ public class ScheduledTask implements Comparable<ScheduledTask>, Serializable {
 
     public synchronized void updateConfiguration(TaskConfiguration configuration, long now) {
         normalizeMutableFields();
+        notifyChanged();
 
         long executedDuration = getExecutedDurationMs();
         if (configuration.durationMs() < executedDuration) {
@@ -268,6 +484,9 @@ public class ScheduledTask implements Comparable<ScheduledTask>, Serializable {
         }
         this.retryLimit = Math.max(retryAttempt, configuration.retryLimit());
         this.retryBackoffMs = this.retryLimit == 0 ? 0L : Math.max(100L, configuration.retryBackoffMs());
+        if (configuration.payload() != null) {
+            this.payload = configuration.payload();
+        }
         this.updatedAt = now;
     }
 
@@ -284,9 +503,10 @@ public class ScheduledTask implements Comparable<ScheduledTask>, Serializable {
                 recurrenceIntervalMs,
                 recurrenceLimit,
                 retryLimit,
-                retryBackoffMs
+                retryBackoffMs,
+                payload
         );
-        return new ScheduledTask(configuration);
+        return new ScheduledTask(configuration, now);
     }
 
     public synchronized ScheduledTask createAutomaticRetryTask(long now) {
@@ -307,7 +527,8 @@ public class ScheduledTask implements Comparable<ScheduledTask>, Serializable {
                 recurrenceIntervalMs,
                 recurrenceLimit,
                 retryLimit,
-                retryBackoffMs
+                retryBackoffMs,
+                payload
         );
 
         return new ScheduledTask(
@@ -340,7 +561,8 @@ public class ScheduledTask implements Comparable<ScheduledTask>, Serializable {
                 recurrenceIntervalMs,
                 recurrenceLimit,
                 retryLimit,
-                retryBackoffMs
+                retryBackoffMs,
+                payload
         );
 
         return new ScheduledTask(
@@ -432,6 +654,55 @@ public class ScheduledTask implements Comparable<ScheduledTask>, Serializable {
         return effective;
     }
 
+    public synchronized DispatchKey getDispatchKey(SchedulerPolicySettings settings, long now) {
+        SchedulerPolicySettings safeSettings = settings == null ? SchedulerPolicySettings.defaults() : settings;
+        normalizeMutableFields();
+        return new DispatchKey(
+                isAtRisk(safeSettings, now),
+                getEffectivePriority(safeSettings, now),
+                deadlineEpochMs - remainingDurationMs,
+                priority,
+                deadlineEpochMs,
+                readyAtEpochMs,
+                createdAt,
+                getNextDispatchKeyChangeAt(safeSettings, now)
+        );
+    }
+
+    private long getNextDispatchKeyChangeAt(SchedulerPolicySettings settings, long now) {
+        long next = Long.MAX_VALUE;
+
+        if (settings.agingEnabled() && status == TaskStatus.QUEUED) {
+            if (readyAtEpochMs > now) {
+                next = readyAtEpochMs;
+            } else {
+                long queueEntry = Math.max(readyAtEpochMs, updatedAt);
+                long ageBoost = Math.max(0L, now - queueEntry) / settings.agingQuantumMs();
+                if (priority - ageBoost > 1L) {
+                    next = queueEntry + (ageBoost + 1L) * settings.agingQuantumMs();
+                }
+            }
+        }
+
+        if (settings.schedulingMode() == SchedulingMode.ADAPTIVE && !status.isTerminal()) {
+            long latestStartAt = deadlineEpochMs - remainingDurationMs;
+            long window = settings.deadlineUrgencyWindowMs();
+            long[] urgencyBoundaries = {
+                    latestStartAt - window,
+                    latestStartAt - (window - 1L) / 2L,
+                    latestStartAt
+            };
+            for (long boundary : urgencyBoundaries) {
+                if (boundary > now) {
+                    next = Math.min(next, boundary);
+                    break;
+                }
+            }
+        }
+
+        return next;
+    }
+
     public synchronized int getProgressPercent() {
         if (totalDurationMs <= 0L) {
             return 0;
@@ -469,10 +740,21 @@ public class ScheduledTask implements Comparable<ScheduledTask>, Serializable {
                 recurrenceIntervalMs,
                 recurrenceLimit,
                 retryLimit,
-                retryBackoffMs
+                retryBackoffMs,
+                payload
         );
     }
 
+    synchronized void setChangeListener(Consumer<ScheduledTask> changeListener) {
+        this.changeListener = changeListener;
+    }
+
+    private void notifyChanged() {
+        if (changeListener != null) {
+            changeListener.accept(this);
+        }
+    }
+
     private void closeOpenSegment(long now) {
         if (!executionSegments.isEmpty()) {
             executionSegments.get(executionSegments.size() - 1).setEndedAt(now);
@@ -645,6 +927,14 @@ public class ScheduledTask implements Comparable<ScheduledTask>, Serializable {
         return retryAttempt;
     }
 
+    public synchronized TaskPayload getPayload() {
+        return payload;
+    }
+
+    public synchronized boolean hasPayload() {
+        return payload != null;
+    }
+
     public synchronized String getRetryParentTaskId() {
         normalizeMutableFields();
         return retryParentTaskId;
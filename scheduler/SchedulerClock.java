@@ -0,0 +1,18 @@
+package scheduler;
+
+/**
+ * Source of time for the scheduler engine, and the way the engine waits for its next event.
+ */
+public interface SchedulerClock {
+    long currentTimeMillis();
+
+    /**
+     * Waits until {@code eventAtEpochMs} is reached or {@code wakeUpSignal} fires, whichever
+     * comes first. {@code Long.MAX_VALUE} means no event is scheduled.
+     */
+    void awaitUntil(long eventAtEpochMs, WakeUpSignal wakeUpSignal);
+
+    static SchedulerClock system() {
+        return SystemSchedulerClock.INSTANCE;
+    }
+}
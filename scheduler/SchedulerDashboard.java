@@ -18,10 +18,12 @@ import javax.swing.JTextArea;
 import javax.swing.JTextField;
 import javax.swing.ListSelectionModel;
 import javax.swing.SpinnerNumberModel;
+import javax.swing.SwingWorker;
 import javax.swing.Timer;
 import javax.swing.event.ListSelectionEvent;
 import javax.swing.table.DefaultTableCellRenderer;
 import javax.swing.table.TableCellRenderer;
+import javax.swing.text.BadLocationException;
 import java.awt.BorderLayout;
 import java.awt.Color;
 import java.awt.Component;
@@ -38,12 +40,16 @@ import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Predicate;
 
 public class SchedulerDashboard extends JFrame {
+    private static final int MAX_LOG_VIEW_LINES = 5000;
     private static final DateTimeFormatter TIME_FORMATTER =
             DateTimeFormatter.ofPattern("HH:mm:ss").withZone(ZoneId.systemDefault());
     private static final DateTimeFormatter DATE_TIME_FORMATTER =
@@ -81,6 +87,9 @@ public class SchedulerDashboard extends JFrame {
     private final JSpinner agingQuantumSpinner = new JSpinner(new SpinnerNumberModel(2000L, 250L, 600_000L, 250L));
     private final JSpinner urgencyWindowSpinner = new JSpinner(new SpinnerNumberModel(1500L, 250L, 600_000L, 250L));
     private final JCheckBox autoRetryCheckBox = new JCheckBox("Enable auto retry for missed tasks");
+    private final JComboBox<LogLevel> logLevelCombo = new JComboBox<>(LogLevel.values());
+    private final JSpinner logRateSpinner = new JSpinner(new SpinnerNumberModel(200, 0, 100_000, 50));
+    private final JTextField logThresholdsField = new JTextField();
 
     private final JTabbedPane workspaceTabs = new JTabbedPane();
     private JPanel overviewTab;
@@ -93,7 +102,7 @@ public class SchedulerDashboard extends JFrame {
     private final Map<String, Boolean> previousRiskState = new HashMap<>();
     private boolean alertStateInitialized = false;
 
-    private int lastRenderedLogCount = 0;
+    private long nextLogSequence = 0L;
     private String pendingActiveSelectionTaskId;
     private String pendingHistorySelectionTaskId;
     private SchedulerSnapshot lastSnapshot;
@@ -115,6 +124,7 @@ public class SchedulerDashboard extends JFrame {
         configureHistoryTable();
         configureNotifications();
         updatePolicyControls(engine.getPolicySettings());
+        updateLoggingControls(engine.getLogSettings());
 
         add(progressPanel, BorderLayout.NORTH);
         add(buildCenterPanel(), BorderLayout.CENTER);
@@ -217,6 +227,11 @@ public class SchedulerDashboard extends JFrame {
         historyTab = buildHistoryTab();
         workspaceTabs.addTab("Active Workspace", overviewTab);
         workspaceTabs.addTab("History", historyTab);
+        workspaceTabs.addChangeListener(event -> {
+            if (workspaceTabs.getSelectedComponent() == historyTab) {
+                engine.loadHistoryAsync();
+            }
+        });
 
         mainSplit.setLeftComponent(leftPanel);
         mainSplit.setRightComponent(workspaceTabs);
@@ -276,7 +291,7 @@ public class SchedulerDashboard extends JFrame {
     }
 
     private JPanel buildPolicyPanel() {
-        JPanel panel = new JPanel(new GridLayout(3, 4, 8, 8));
+        JPanel panel = new JPanel(new GridLayout(5, 4, 8, 8));
         panel.setBorder(BorderFactory.createTitledBorder("Scheduler Policy"));
 
         panel.add(new JLabel("Mode"));
@@ -296,6 +311,20 @@ public class SchedulerDashboard extends JFrame {
         panel.add(autoRetryCheckBox);
         panel.add(new JLabel("Adaptive mode boosts urgent tasks."));
         panel.add(new JLabel("Aging reduces starvation for ready tasks."));
+
+        panel.add(new JLabel("Log level"));
+        panel.add(new JLabel("Events per type / s (0 = all)"));
+        panel.add(new JLabel("Thresholds (type or category=level)"));
+        panel.add(new JLabel(""));
+
+        logThresholdsField.setToolTipText("For example: TASK_READY=Warning, reports=Debug");
+        panel.add(logLevelCombo);
+        panel.add(logRateSpinner);
+        panel.add(logThresholdsField);
+
+        JButton applyLoggingButton = new JButton("Apply Logging");
+        applyLoggingButton.addActionListener(event -> applyLogSettings());
+        panel.add(applyLoggingButton);
         return panel;
     }
 
@@ -326,7 +355,7 @@ public class SchedulerDashboard extends JFrame {
     }
 
     private JPanel buildHistoryFilterPanel() {
-        JPanel panel = new JPanel(new GridLayout(2, 5, 8, 8));
+        JPanel panel = new JPanel(new GridLayout(2, 6, 8, 8));
         panel.setBorder(BorderFactory.createTitledBorder("History Filters"));
 
         panel.add(new JLabel("Search"));
@@ -334,6 +363,7 @@ public class SchedulerDashboard extends JFrame {
         panel.add(new JLabel("Category"));
         panel.add(new JLabel("Special"));
         panel.add(new JLabel(""));
+        panel.add(new JLabel(""));
 
         panel.add(historySearchField);
         panel.add(historyStatusFilterCombo);
@@ -346,6 +376,10 @@ public class SchedulerDashboard extends JFrame {
             refreshUi();
         });
         panel.add(clearButton);
+
+        JButton exportReportButton = new JButton("Export Report");
+        exportReportButton.addActionListener(event -> exportHistoryReport(exportReportButton));
+        panel.add(exportReportButton);
         return panel;
     }
 
@@ -437,6 +471,33 @@ public class SchedulerDashboard extends JFrame {
         updatePolicyControlState();
     }
 
+    private void applyLogSettings() {
+        try {
+            LogSettings settings = new LogSettings(
+                    (LogLevel) logLevelCombo.getSelectedItem(),
+                    null,
+                    null,
+                    ((Number) logRateSpinner.getValue()).intValue()
+            ).withThresholds(logThresholdsField.getText());
+            engine.updateLogSettings(settings);
+            updateLoggingControls(settings);
+        } catch (IllegalArgumentException exception) {
+            JOptionPane.showMessageDialog(
+                    this,
+                    exception.getMessage(),
+                    "Invalid Logging Settings",
+                    JOptionPane.ERROR_MESSAGE
+            );
+        }
+    }
+
+    private void updateLoggingControls(LogSettings settings) {
+        LogSettings safeSettings = settings == null ? LogSettings.defaults() : settings;
+        logLevelCombo.setSelectedItem(safeSettings.minimumLevel());
+        logRateSpinner.setValue(safeSettings.maxEventsPerSecond());
+        logThresholdsField.setText(safeSettings.describeThresholds());
+    }
+
     private void updatePolicyControlState() {
         agingQuantumSpinner.setEnabled(agingCheckBox.isSelected());
     }
@@ -608,6 +669,72 @@ public class SchedulerDashboard extends JFrame {
         }
     }
 
+    // Archived tasks are no longer in snapshots, so the report reads them back from disk. That
+    // waits for pending persistence and reads archive segments, so it runs off the EDT.
+    private void exportHistoryReport(JButton exportButton) {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setSelectedFile(Path.of("scheduler_history.csv").toFile());
+        int result = chooser.showSaveDialog(this);
+        if (result != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        Path targetFile = chooser.getSelectedFile().toPath();
+
+        // The outcome and category filters narrow the archive read to segments that can match.
+        ArchiveQuery archiveQuery = ArchiveQuery.all();
+        String selectedStatus = (String) historyStatusFilterCombo.getSelectedItem();
+        if (selectedStatus != null && !"All".equals(selectedStatus)) {
+            archiveQuery = archiveQuery.withStatus(TaskStatus.valueOf(selectedStatus));
+        }
+        String selectedCategory = (String) historyCategoryFilterCombo.getSelectedItem();
+        if (selectedCategory != null && !"All".equals(selectedCategory)) {
+            archiveQuery = archiveQuery.withCategory(selectedCategory);
+        }
+
+        ArchiveQuery query = archiveQuery;
+        Predicate<ScheduledTask> historyFilter = historyFilter();
+
+        exportButton.setEnabled(false);
+        new SwingWorker<Integer, Void>() {
+            @Override
+            protected Integer doInBackground() throws IOException {
+                Map<String, ScheduledTask> reportTasks = new LinkedHashMap<>();
+                for (ScheduledTask task : engine.queryArchivedTasks(query, null)) {
+                    reportTasks.put(task.getId(), task);
+                }
+                for (ScheduledTask task : engine.getSnapshot().tasks()) {
+                    reportTasks.put(task.getId(), task);
+                }
+                List<ScheduledTask> filteredTasks = filterHistory(new ArrayList<>(reportTasks.values()), historyFilter);
+                TaskReportExporter.exportCsv(filteredTasks, targetFile);
+                return filteredTasks.size();
+            }
+
+            @Override
+            protected void done() {
+                exportButton.setEnabled(true);
+                try {
+                    JOptionPane.showMessageDialog(
+                            SchedulerDashboard.this,
+                            "Exported " + get() + " history task(s), including archived ones.",
+                            "Export Complete",
+                            JOptionPane.INFORMATION_MESSAGE
+                    );
+                } catch (InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException exception) {
+                    Throwable cause = exception.getCause() == null ? exception : exception.getCause();
+                    JOptionPane.showMessageDialog(
+                            SchedulerDashboard.this,
+                            "Failed to export history report: " + cause.getMessage(),
+                            "Export Failed",
+                            JOptionPane.ERROR_MESSAGE
+                    );
+                }
+            }
+        }.execute();
+    }
+
     private void openDataFolder() {
         try {
             if (Desktop.isDesktopSupported()) {
@@ -673,13 +800,13 @@ public class SchedulerDashboard extends JFrame {
             progressPanel.clearProgress();
         }
 
-        updateLogs(LoggerUtil.getLogs());
+        updateLogs(LoggerUtil.getLogsSince(nextLogSequence));
         updateLiveDetails();
         updateHistoryDetails();
 
         statusLabel.setText(
                 "Active " + snapshot.metrics().activeTasks()
-                        + " • History " + snapshot.metrics().historyTasks()
+                        + " • History " + (snapshot.historyLoaded() ? snapshot.metrics().historyTasks() : "loading...")
                         + " • Showing " + activeTasks.size() + " live / " + historyTasks.size() + " history"
                         + " • " + snapshot.policySettings().describe()
                         + " • Local state folder: " + dataDirectory
@@ -867,29 +994,34 @@ public class SchedulerDashboard extends JFrame {
     }
 
     private List<ScheduledTask> applyHistoryFilters(List<ScheduledTask> tasks) {
+        return filterHistory(tasks, historyFilter());
+    }
+
+    // Reads the filter controls, so it is called on the EDT; the predicate can run anywhere.
+    private Predicate<ScheduledTask> historyFilter() {
         String searchText = historySearchField.getText() == null
                 ? ""
                 : historySearchField.getText().trim().toLowerCase(Locale.ROOT);
         String selectedStatus = (String) historyStatusFilterCombo.getSelectedItem();
         String selectedCategory = (String) historyCategoryFilterCombo.getSelectedItem();
+        boolean specialOnly = historySpecialOnlyCheckBox.isSelected();
 
-        List<ScheduledTask> filtered = new ArrayList<>();
-        for (ScheduledTask task : tasks) {
+        return task -> {
             if (!task.isTerminal()) {
-                continue;
+                return false;
             }
             if (selectedStatus != null && !"All".equals(selectedStatus) && !task.getStatus().name().equals(selectedStatus)) {
-                continue;
+                return false;
             }
             if (selectedCategory != null
                     && !"All".equals(selectedCategory)
                     && !selectedCategory.equalsIgnoreCase(task.getCategory())) {
-                continue;
+                return false;
             }
-            if (historySpecialOnlyCheckBox.isSelected()
+            if (specialOnly
                     && task.getRetryAttempt() == 0
                     && task.getRecurrenceLimit() <= 1) {
-                continue;
+                return false;
             }
             if (!searchText.isBlank()) {
                 String haystack = (
@@ -901,11 +1033,18 @@ public class SchedulerDashboard extends JFrame {
                                 + task.getSeriesId() + " "
                                 + task.getRetrySummary()
                 ).toLowerCase(Locale.ROOT);
-                if (!haystack.contains(searchText)) {
-                    continue;
-                }
+                return haystack.contains(searchText);
+            }
+            return true;
+        };
+    }
+
+    private static List<ScheduledTask> filterHistory(List<ScheduledTask> tasks, Predicate<ScheduledTask> historyFilter) {
+        List<ScheduledTask> filtered = new ArrayList<>();
+        for (ScheduledTask task : tasks) {
+            if (historyFilter.test(task)) {
+                filtered.add(task);
             }
-            filtered.add(task);
         }
 
         filtered.sort((left, right) -> Long.compare(right.getFinishedAt(), left.getFinishedAt()));
@@ -977,24 +1116,28 @@ public class SchedulerDashboard extends JFrame {
         historyDetailsPanel.showTask(selectedTask, lastSnapshot.policySettings(), lastSnapshot.generatedAt());
     }
 
-    private void updateLogs(List<String> logs) {
-        if (logs.size() < lastRenderedLogCount) {
-            logArea.setText("");
-            lastRenderedLogCount = 0;
-        }
-
-        if (logs.size() == lastRenderedLogCount) {
+    private void updateLogs(LogSlice slice) {
+        nextLogSequence = slice.nextSequence();
+        if (slice.lines().isEmpty()) {
             return;
         }
 
         StringBuilder builder = new StringBuilder();
-        for (int index = lastRenderedLogCount; index < logs.size(); index++) {
-            builder.append(logs.get(index)).append(System.lineSeparator());
+        for (String line : slice.lines()) {
+            builder.append(line).append(System.lineSeparator());
         }
 
         logArea.append(builder.toString());
+        // Keep the view about as long as the in-memory log instead of growing without bound.
+        int excessLines = logArea.getLineCount() - 1 - MAX_LOG_VIEW_LINES;
+        if (excessLines > 0) {
+            try {
+                logArea.replaceRange("", 0, logArea.getLineStartOffset(excessLines));
+            } catch (BadLocationException ignored) {
+                // The offset comes from the same document, so it is always in range.
+            }
+        }
         logArea.setCaretPosition(logArea.getDocument().getLength());
-        lastRenderedLogCount = logs.size();
     }
 
     private void clearActiveFilters() {
@@ -1,36 +1,108 @@
 package scheduler;
 
-import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.PriorityQueue;
+import java.util.Map;
+import java.util.Set;
+import java.lang.reflect.Method;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 public class SchedulerEngine {
-    private static final long TICK_MS = 100L;
+    private static final long DEFERRED_WHEEL_TICK_MS = 10L;
+    // A dispatched task keeps its lane at least this long, so tasks with near-equal slack
+    // do not swap lanes every millisecond.
+    private static final long MIN_PREEMPTION_SLICE_MS = 100L;
+    // History retention runs at most this often, so archiving (and the history segment
+    // rewrites behind it) happens in batches.
+    private static final long HISTORY_RETENTION_INTERVAL_MS = 1_000L;
+    // Count limits and capacity pressure archive this far below the limit, so the next pass
+    // is not a single task away.
+    private static final int HISTORY_ARCHIVE_SLACK_PERCENT = 10;
+    private static final Comparator<ScheduledTask> HISTORY_ORDER = Comparator
+            .comparingLong(ScheduledTask::getFinishedAt)
+            .thenComparingLong(ScheduledTask::getCreatedAt)
+            .thenComparing(ScheduledTask::getId);
 
     private final int maxTasks;
+    private final SchedulerClock clock;
     private final SchedulerStateStore stateStore;
     private final Object stateLock = new Object();
     private final ConcurrentHashMap<String, ScheduledTask> allTasks = new ConcurrentHashMap<>();
-    private final PriorityBlockingQueue<ScheduledTask> readyQueue = new PriorityBlockingQueue<>();
-    private final PriorityQueue<ScheduledTask> deferredQueue =
-            new PriorityQueue<>(Comparator
-                    .comparingLong(ScheduledTask::getReadyAtEpochMs)
-                    .thenComparingInt(ScheduledTask::getPriority)
+    private final Map<ScheduledTask, DispatchKey> dispatchKeys = new HashMap<>();
+    private final IndexedHeap<ScheduledTask> readyQueue = new IndexedHeap<>(this::compareReadyTasks);
+    private final IndexedHeap<ScheduledTask> dispatchKeyExpiryQueue =
+            new IndexedHeap<>(Comparator.comparingLong(task -> dispatchKeys.get(task).expiresAt()));
+    private final TimingWheel<ScheduledTask> deferredQueue;
+    private final IndexedHeap<ScheduledTask> deadlineIndex =
+            new IndexedHeap<>(Comparator
+                    .comparingLong(ScheduledTask::getDeadlineEpochMs)
                     .thenComparingLong(ScheduledTask::getCreatedAt));
 
+    private final ScheduledTask[] lanes;
+    private final long[] laneBusyMs;
+    private final long[] laneSliceStartedAt;
+    private final long[] laneDispatchedAt;
+    private final Map<ScheduledTask, PayloadExecution> payloadExecutions = new HashMap<>();
+    private final WakeUpSignal wakeUpSignal = new WakeUpSignal();
+    private final ConcurrentLinkedQueue<EngineCommand<?>> pendingCommands = new ConcurrentLinkedQueue<>();
+    // Tasks changed since the last persistState, and a frozen copy of every task as last
+    // persisted. Only dirty tasks are copied and written; a checkpoint view is just references.
+    private final Set<ScheduledTask> dirtyTasks = new LinkedHashSet<>();
+    private final Map<String, ScheduledTask> persistedCopies = new HashMap<>();
+    // Persisted finished tasks still in memory, oldest first, overall and per category.
+    private final IndexedHeap<ScheduledTask> historyByFinish = new IndexedHeap<>(HISTORY_ORDER);
+    private final Map<String, IndexedHeap<ScheduledTask>> historyByCategory = new HashMap<>();
+    private ExecutorService payloadExecutor;
+
     private volatile boolean running;
     private Thread schedulerThread;
-    private ScheduledTask currentTask;
+    private long lanesStartedAt;
     private SchedulerPolicySettings policySettings;
+    private boolean policySettingsChanged;
+    private LogSettings logSettings;
+    private boolean logSettingsChanged;
+    private CompletableFuture<Void> historyMerge;
+    private volatile boolean historyLoaded;
+    private HistoryRetention historyRetention = HistoryRetention.unlimited();
+    private boolean historyRetentionPending;
+    private long nextHistoryRetentionAt;
 
     public SchedulerEngine(SchedulerStateStore stateStore, int maxTasks) {
+        this(stateStore, maxTasks, 1);
+    }
+
+    public SchedulerEngine(SchedulerStateStore stateStore, int maxTasks, int laneCount) {
+        this(stateStore, maxTasks, laneCount, SchedulerClock.system());
+    }
+
+    public SchedulerEngine(SchedulerStateStore stateStore, int maxTasks, int laneCount, SchedulerClock clock) {
         this.stateStore = stateStore;
         this.maxTasks = maxTasks;
+        this.clock = clock == null ? SchedulerClock.system() : clock;
+        this.deferredQueue = new TimingWheel<>(DEFERRED_WHEEL_TICK_MS, this.clock.currentTimeMillis());
+        this.lanes = new ScheduledTask[Math.max(1, laneCount)];
+        this.laneBusyMs = new long[lanes.length];
+        this.laneSliceStartedAt = new long[lanes.length];
+        this.laneDispatchedAt = new long[lanes.length];
+        this.lanesStartedAt = clock.currentTimeMillis();
         this.policySettings = stateStore.loadPolicySettings();
+        this.logSettings = stateStore.loadLogSettings();
+        LoggerUtil.configure(logSettings);
         restoreState();
     }
 
@@ -40,10 +112,14 @@ public class SchedulerEngine {
                 return;
             }
             running = true;
+            wakeUpSignal.clear();
+            lanesStartedAt = clock.currentTimeMillis();
+            Arrays.fill(laneBusyMs, 0L);
             schedulerThread = new Thread(this::runLoop, "scheduler-engine");
             schedulerThread.setDaemon(true);
             schedulerThread.start();
         }
+        loadHistoryAsync();
     }
 
     public void shutdownGracefully() {
@@ -51,27 +127,29 @@ public class SchedulerEngine {
         synchronized (stateLock) {
             if (!running && schedulerThread == null) {
                 persistState();
+                stateStore.checkpointUnsavedChanges(this::captureCheckpointViewLocked);
+                stateStore.flush();
                 return;
             }
             running = false;
-            if (currentTask != null && currentTask.getStatus() == TaskStatus.RUNNING) {
-                currentTask.markQueued(System.currentTimeMillis());
-                enqueueQueuedTask(currentTask, System.currentTimeMillis());
-                currentTask = null;
-            }
+            drainCommandsLocked();
+            requeueRunningTasksLocked(clock.currentTimeMillis());
+            stopAllPayloadsLocked();
             persistState();
+            stateStore.checkpointUnsavedChanges(this::captureCheckpointViewLocked);
             threadToJoin = schedulerThread;
             schedulerThread = null;
         }
 
         if (threadToJoin != null) {
-            threadToJoin.interrupt();
+            wakeUpSignal.signal();
             try {
                 threadToJoin.join(2000L);
             } catch (InterruptedException interruptedException) {
                 Thread.currentThread().interrupt();
             }
         }
+        stateStore.flush();
     }
 
     public ScheduledTask addTask(String name, int priority, long durationMs, long deadlineEpochMs) {
@@ -91,84 +169,148 @@ public class SchedulerEngine {
     }
 
     public ScheduledTask addTask(TaskConfiguration configuration) {
-        validateTaskConfiguration(configuration, System.currentTimeMillis());
-        ScheduledTask task = new ScheduledTask(configuration);
+        return awaitCommand(addTaskAsync(configuration));
+    }
 
-        synchronized (stateLock) {
+    public CompletableFuture<ScheduledTask> addTaskAsync(TaskConfiguration configuration) {
+        validateTaskConfiguration(configuration, clock.currentTimeMillis());
+        return submitCommand(() -> {
             ensureCapacityLocked();
-            allTasks.put(task.getId(), task);
-            enqueueQueuedTask(task, System.currentTimeMillis());
-            persistState();
+            long now = clock.currentTimeMillis();
+            ScheduledTask task = new ScheduledTask(configuration, now);
+            registerTaskLocked(task);
+            enqueueQueuedTask(task, now);
+
+            LoggerUtil.log(
+                    "Added task '" + task.getName()
+                            + "' (priority=" + task.getPriority()
+                            + ", duration=" + task.getTotalDurationMs() + " ms"
+                            + ", category=" + (task.getCategory().isBlank() ? "-" : task.getCategory())
+                            + ", recurrence=" + task.getRecurrenceSummary()
+                            + ", retry=" + task.getRetrySummary() + ")."
+            );
+            return task.copy();
+        });
+    }
+
+    public TaskBatchResult addTasks(Collection<TaskConfiguration> configurations) {
+        return awaitCommand(addTasksAsync(configurations));
+    }
+
+    /**
+     * Adds many tasks with a single command, one persist and one summary log line. Invalid
+     * items are reported in the result and skipped. If the valid items do not all fit under
+     * {@code maxTasks}, none of them are added.
+     */
+    public CompletableFuture<TaskBatchResult> addTasksAsync(Collection<TaskConfiguration> configurations) {
+        if (configurations == null) {
+            throw new IllegalArgumentException("Task configurations are required.");
         }
 
-        LoggerUtil.log(
-                "Added task '" + task.getName()
-                        + "' (priority=" + task.getPriority()
-                        + ", duration=" + task.getTotalDurationMs() + " ms"
-                        + ", category=" + (task.getCategory().isBlank() ? "-" : task.getCategory())
-                        + ", recurrence=" + task.getRecurrenceSummary()
-                        + ", retry=" + task.getRetrySummary() + ")."
-        );
-        wakeUpScheduler();
-        return task.copy();
+        long validatedAt = clock.currentTimeMillis();
+        List<TaskConfiguration> validConfigurations = new ArrayList<>(configurations.size());
+        Map<Integer, String> failures = new LinkedHashMap<>();
+        int index = 0;
+        for (TaskConfiguration configuration : configurations) {
+            try {
+                validateTaskConfiguration(configuration, validatedAt);
+                validConfigurations.add(configuration);
+            } catch (IllegalArgumentException invalidConfiguration) {
+                failures.put(index, invalidConfiguration.getMessage());
+            }
+            index++;
+        }
+
+        return submitCommand(() -> {
+            if (!reserveCapacityLocked(validConfigurations.size())) {
+                throw new IllegalStateException(
+                        "Batch of " + validConfigurations.size() + " tasks exceeds the maximum task limit ("
+                                + maxTasks + ", " + allTasks.size() + " already present)."
+                );
+            }
+
+            long now = clock.currentTimeMillis();
+            List<ScheduledTask> addedTasks = new ArrayList<>(validConfigurations.size());
+            for (TaskConfiguration configuration : validConfigurations) {
+                ScheduledTask task = new ScheduledTask(configuration, now);
+                registerTaskLocked(task);
+                enqueueQueuedTask(task, now);
+                addedTasks.add(task.copy());
+            }
+
+            LoggerUtil.log(
+                    "Added " + addedTasks.size() + " tasks in a batch"
+                            + (failures.isEmpty() ? "." : "; rejected " + failures.size() + " invalid items.")
+            );
+            return new TaskBatchResult(List.copyOf(addedTasks), Collections.unmodifiableMap(failures));
+        });
     }
 
     public boolean updateTask(String taskId, TaskConfiguration updatedConfiguration) {
-        synchronized (stateLock) {
+        return awaitCommand(updateTaskAsync(taskId, updatedConfiguration));
+    }
+
+    public CompletableFuture<Boolean> updateTaskAsync(String taskId, TaskConfiguration updatedConfiguration) {
+        return submitCommand(() -> {
             ScheduledTask task = allTasks.get(taskId);
             if (task == null || task.isTerminal() || task.getStatus() == TaskStatus.RUNNING) {
                 return false;
             }
 
-            validateTaskConfiguration(updatedConfiguration, Math.max(System.currentTimeMillis(), task.getReadyAtEpochMs()));
+            long now = clock.currentTimeMillis();
+            validateTaskConfiguration(updatedConfiguration, Math.max(now, task.getReadyAtEpochMs()));
             removeFromQueues(task);
-            task.updateConfiguration(updatedConfiguration, System.currentTimeMillis());
+            task.updateConfiguration(updatedConfiguration, now);
+            deadlineIndex.update(task);
 
             if (task.getStatus() == TaskStatus.QUEUED) {
-                enqueueQueuedTask(task, System.currentTimeMillis());
+                enqueueQueuedTask(task, now);
             }
 
-            persistState();
             LoggerUtil.log("Updated task '" + task.getName() + "' (" + task.getId() + ").");
-        }
-
-        wakeUpScheduler();
-        return true;
+            return true;
+        });
     }
 
     public ScheduledTask cloneTask(String taskId) {
-        synchronized (stateLock) {
+        return awaitCommand(cloneTaskAsync(taskId));
+    }
+
+    public CompletableFuture<ScheduledTask> cloneTaskAsync(String taskId) {
+        return submitCommand(() -> {
             ScheduledTask sourceTask = allTasks.get(taskId);
             if (sourceTask == null) {
                 return null;
             }
 
             ensureCapacityLocked();
-            long now = System.currentTimeMillis();
+            long now = clock.currentTimeMillis();
             ScheduledTask clonedTask = sourceTask.createManualCloneTask(now);
-            allTasks.put(clonedTask.getId(), clonedTask);
+            registerTaskLocked(clonedTask);
             enqueueQueuedTask(clonedTask, now);
-            persistState();
 
             LoggerUtil.log(
                     "Created a new task from '" + sourceTask.getName() + "' as '" + clonedTask.getName() + "'."
             );
-            wakeUpScheduler();
             return clonedTask.copy();
-        }
+        });
     }
 
     public boolean pauseTask(String taskId) {
-        synchronized (stateLock) {
+        return awaitCommand(pauseTaskAsync(taskId));
+    }
+
+    public CompletableFuture<Boolean> pauseTaskAsync(String taskId) {
+        return submitCommand(() -> {
             ScheduledTask task = allTasks.get(taskId);
             if (task == null || task.getStatus().isTerminal() || task.getStatus() == TaskStatus.PAUSED) {
                 return false;
             }
 
-            long now = System.currentTimeMillis();
-            if (task.equals(currentTask)) {
+            long now = clock.currentTimeMillis();
+            if (releaseLaneLocked(task, now)) {
                 task.markPaused(now);
-                currentTask = null;
+                suspendPayloadLocked(task);
             } else if (task.getStatus() == TaskStatus.QUEUED) {
                 removeFromQueues(task);
                 task.markPaused(now);
@@ -176,70 +318,91 @@ public class SchedulerEngine {
                 return false;
             }
 
-            persistState();
             LoggerUtil.log("Paused task '" + task.getName() + "'.");
-        }
-
-        wakeUpScheduler();
-        return true;
+            return true;
+        });
     }
 
     public boolean resumeTask(String taskId) {
-        synchronized (stateLock) {
+        return awaitCommand(resumeTaskAsync(taskId));
+    }
+
+    public CompletableFuture<Boolean> resumeTaskAsync(String taskId) {
+        return submitCommand(() -> {
             ScheduledTask task = allTasks.get(taskId);
             if (task == null || task.getStatus() != TaskStatus.PAUSED) {
                 return false;
             }
 
-            long now = System.currentTimeMillis();
+            long now = clock.currentTimeMillis();
             task.markQueued(now);
             enqueueQueuedTask(task, now);
-            persistState();
             LoggerUtil.log("Resumed task '" + task.getName() + "'.");
-        }
-
-        wakeUpScheduler();
-        return true;
+            return true;
+        });
     }
 
     public boolean cancelTask(String taskId) {
-        synchronized (stateLock) {
+        return awaitCommand(cancelTaskAsync(taskId));
+    }
+
+    public CompletableFuture<Boolean> cancelTaskAsync(String taskId) {
+        return submitCommand(() -> {
             ScheduledTask task = allTasks.get(taskId);
             if (task == null || task.getStatus().isTerminal()) {
                 return false;
             }
 
-            long now = System.currentTimeMillis();
+            long now = clock.currentTimeMillis();
             removeFromQueues(task);
-
-            if (task.equals(currentTask)) {
-                currentTask = null;
-            }
+            releaseLaneLocked(task, now);
+            stopPayloadLocked(task);
 
             task.markCanceled(now);
-            persistState();
+            deadlineIndex.remove(task);
             LoggerUtil.log("Canceled task '" + task.getName() + "'.");
-        }
-
-        wakeUpScheduler();
-        return true;
+            return true;
+        });
     }
 
     public SchedulerSnapshot getSnapshot() {
         synchronized (stateLock) {
-            long snapshotTime = System.currentTimeMillis();
+            long snapshotTime = clock.currentTimeMillis();
+            ScheduledTask[] laneCopies = new ScheduledTask[lanes.length];
+            long[] busyMs = new long[lanes.length];
+            for (int lane = 0; lane < lanes.length; lane++) {
+                laneCopies[lane] = lanes[lane] == null ? null : lanes[lane].copy();
+                busyMs[lane] = laneBusyMs[lane] + projectLaneForViewLocked(lane, laneCopies[lane], snapshotTime);
+            }
             List<ScheduledTask> tasks = new ArrayList<>();
             for (ScheduledTask task : allTasks.values()) {
-                tasks.add(task.copy());
+                tasks.add(copyForViewLocked(task, laneCopies));
             }
             tasks.sort(taskComparatorForViews(snapshotTime));
-            ScheduledTask current = currentTask == null ? null : currentTask.copy();
+
+            List<LaneSnapshot> laneSnapshots = new ArrayList<>();
+            ScheduledTask current = null;
+            for (int lane = 0; lane < lanes.length; lane++) {
+                ScheduledTask laneTask = laneCopies[lane];
+                if (current == null) {
+                    current = laneTask;
+                }
+                laneSnapshots.add(new LaneSnapshot(
+                        lane,
+                        laneTask,
+                        busyMs[lane],
+                        utilizationPercent(busyMs[lane], snapshotTime)
+                ));
+            }
+
             return new SchedulerSnapshot(
                     tasks,
                     current,
-                    buildMetrics(tasks, snapshotTime),
+                    laneSnapshots,
+                    buildMetrics(tasks, laneSnapshots, snapshotTime),
                     policySettings,
-                    snapshotTime
+                    snapshotTime,
+                    historyLoaded
             );
         }
     }
@@ -255,134 +418,452 @@ public class SchedulerEngine {
                 ? SchedulerPolicySettings.defaults()
                 : updatedSettings;
 
-        synchronized (stateLock) {
+        awaitCommand(submitCommand(() -> {
             this.policySettings = safeSettings;
-            persistState();
+            this.policySettingsChanged = true;
+            rebuildDispatchKeysLocked(clock.currentTimeMillis());
             LoggerUtil.log("Updated scheduler policy: " + safeSettings.describe() + ".");
+            return null;
+        }));
+    }
+
+    public LogSettings getLogSettings() {
+        synchronized (stateLock) {
+            return logSettings;
         }
+    }
+
+    public void updateLogSettings(LogSettings updatedSettings) {
+        LogSettings safeSettings = updatedSettings == null ? LogSettings.defaults() : updatedSettings;
 
+        awaitCommand(submitCommand(() -> {
+            this.logSettings = safeSettings;
+            this.logSettingsChanged = true;
+            LoggerUtil.configure(safeSettings);
+            LoggerUtil.log("Updated logging: " + safeSettings.describe() + ".");
+            return null;
+        }));
+    }
+
+    public HistoryRetention getHistoryRetention() {
+        synchronized (stateLock) {
+            return historyRetention;
+        }
+    }
+
+    public void updateHistoryRetention(HistoryRetention retention) {
+        HistoryRetention safeRetention = retention == null ? HistoryRetention.unlimited() : retention;
+
+        awaitCommand(submitCommand(() -> {
+            this.historyRetention = safeRetention;
+            this.historyRetentionPending = true;
+            LoggerUtil.log("Updated history retention: " + safeRetention.describe() + ".");
+            return null;
+        }));
+    }
+
+    /**
+     * Reads finished tasks that history retention archived, for reports. They are no longer
+     * part of {@link #getSnapshot()}.
+     */
+    public List<ScheduledTask> queryArchivedTasks(ArchiveQuery query, Predicate<? super ScheduledTask> filter) {
+        return stateStore.queryArchive(query, filter);
+    }
+
+    /**
+     * Queues a state mutation for the engine thread, which applies queued commands in one
+     * batch at the start of its next pass and persists once for the whole batch. Runs the
+     * command inline when the engine is stopped or the caller is the engine thread itself.
+     */
+    private <T> CompletableFuture<T> submitCommand(Supplier<T> command) {
+        EngineCommand<T> engineCommand = new EngineCommand<>(command);
+        if (!running || Thread.currentThread() == schedulerThread) {
+            synchronized (stateLock) {
+                engineCommand.run();
+                persistState();
+            }
+            return engineCommand.result;
+        }
+
+        pendingCommands.offer(engineCommand);
         wakeUpScheduler();
+        if (!running) {
+            // Lost a race with shutdown; make sure the command is not stranded.
+            synchronized (stateLock) {
+                drainCommandsLocked();
+            }
+        }
+        return engineCommand.result;
+    }
+
+    private boolean drainCommandsLocked() {
+        boolean applied = false;
+        EngineCommand<?> command;
+        while ((command = pendingCommands.poll()) != null) {
+            command.run();
+            applied = true;
+        }
+        if (applied) {
+            persistState();
+        }
+        return applied;
+    }
+
+    private static <T> T awaitCommand(CompletableFuture<T> result) {
+        try {
+            return result.join();
+        } catch (CompletionException completionException) {
+            if (completionException.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw completionException;
+        }
     }
 
     private void runLoop() {
         LoggerUtil.log("Scheduler engine started.");
 
         while (running) {
+            if (Thread.currentThread().isInterrupted()) {
+                LoggerUtil.log(LogLevel.WARN, "Scheduler engine thread was interrupted; stopping.");
+                break;
+            }
+
             try {
-                ScheduledTask taskToRun;
-                long idleSleepMs;
+                long nextEventAt;
 
                 synchronized (stateLock) {
-                    long now = System.currentTimeMillis();
+                    drainCommandsLocked();
+                    long now = clock.currentTimeMillis();
+                    advanceRunningLanesLocked(now);
                     activateDueTasks(now);
                     expireOverdueTasks(now);
-
-                    if (currentTask == null) {
-                        currentTask = pollBestReadyTaskLocked(now);
-                        if (currentTask != null) {
-                            currentTask.markRunning(now);
-                            LoggerUtil.log(
-                                    "Running task '" + currentTask.getName()
-                                            + "' using " + policySettings.schedulingMode() + "."
-                            );
-                            persistState();
-                        }
-                    } else {
-                        ScheduledTask nextTask = peekBestReadyTaskLocked(now);
-                        if (nextTask != null && compareForDispatch(nextTask, currentTask, now) < 0) {
-                            ScheduledTask higherPriority = pollBestReadyTaskLocked(now);
-                            if (higherPriority != null) {
-                                String reason = explainSchedulingDecision(higherPriority, currentTask, now);
-                                currentTask.recordPreemption(now);
-                                readyQueue.offer(currentTask);
-                                LoggerUtil.log(
-                                        "Preempted task '" + currentTask.getName()
-                                                + "' for '" + higherPriority.getName()
-                                                + "' due to " + reason + "."
-                                );
-                                currentTask = higherPriority;
-                                currentTask.markRunning(now);
-                                persistState();
-                            }
-                        }
-                    }
-
-                    taskToRun = currentTask;
-                    idleSleepMs = computeIdleSleepLocked(now);
+                    dispatchReadyTasksLocked(now);
+                    applyHistoryRetentionLocked(now);
+                    nextEventAt = computeNextEventAtLocked(now);
                 }
 
-                if (taskToRun == null) {
-                    Thread.sleep(idleSleepMs);
+                clock.awaitUntil(nextEventAt, wakeUpSignal);
+            } catch (Exception exception) {
+                LoggerUtil.log(LogLevel.ERROR, "Scheduler engine error: " + exception.getMessage());
+            }
+        }
+
+        synchronized (stateLock) {
+            drainCommandsLocked();
+            requeueRunningTasksLocked(clock.currentTimeMillis());
+            stopAllPayloadsLocked();
+            persistState();
+        }
+
+        LoggerUtil.log("Scheduler engine stopped.");
+    }
+
+    private void advanceRunningLanesLocked(long now) {
+        boolean changed = false;
+        for (int lane = 0; lane < lanes.length; lane++) {
+            ScheduledTask laneTask = lanes[lane];
+            if (laneTask == null) {
+                continue;
+            }
+            if (laneTask.getStatus() != TaskStatus.RUNNING) {
+                lanes[lane] = null;
+                continue;
+            }
+
+            PayloadExecution execution = payloadExecutions.get(laneTask);
+            boolean payloadFinished = execution != null && execution.isFinished();
+
+            // Simulated work ends at a known instant, so record it there rather than at wake-up.
+            long completesAt = execution == null
+                    ? laneSliceStartedAt[lane] + laneTask.getRemainingDurationMs()
+                    : Long.MAX_VALUE;
+            long settledAt = Math.min(now, completesAt);
+            settleLaneLocked(lane, settledAt);
+
+            if (payloadFinished && execution.getFailure() != null) {
+                handleMissedTaskLocked(laneTask, now, SchedulerEventType.FAILED, describeFailure(execution.getFailure()));
+                changed = true;
+                continue;
+            }
+
+            if (payloadFinished || laneTask.getRemainingDurationMs() <= 0L) {
+                long completedAt = payloadFinished ? now : settledAt;
+                if (completedAt <= laneTask.getDeadlineEpochMs()) {
+                    completeLaneTaskLocked(lane, laneTask, completedAt);
+                    changed = true;
                     continue;
                 }
+            }
 
-                Thread.sleep(TICK_MS);
+            if (now > laneTask.getDeadlineEpochMs()) {
+                handleMissedTaskLocked(laneTask, now, SchedulerEventType.MISSED, null);
+                changed = true;
+            }
+        }
 
-                synchronized (stateLock) {
-                    if (currentTask == null
-                            || !currentTask.equals(taskToRun)
-                            || currentTask.getStatus() != TaskStatus.RUNNING) {
-                        continue;
-                    }
-
-                    long now = System.currentTimeMillis();
-                    currentTask.consumeTimeSlice(TICK_MS, now);
-
-                    if (now > currentTask.getDeadlineEpochMs() && currentTask.getRemainingDurationMs() > 0L) {
-                        handleMissedTaskLocked(
-                                currentTask,
-                                now,
-                                "Task '" + currentTask.getName() + "' missed its deadline while running."
-                        );
-                        persistState();
-                        continue;
-                    }
-
-                    if (currentTask.getRemainingDurationMs() <= 0L) {
-                        ScheduledTask completedTask = currentTask;
-                        completedTask.markCompleted(now);
-                        LoggerUtil.log("Task '" + completedTask.getName() + "' completed.");
-
-                        currentTask = null;
-                        scheduleNextOccurrenceIfNeeded(completedTask, now);
-                        persistState();
-                    }
-                }
-            } catch (InterruptedException interruptedException) {
-                if (!running) {
-                    Thread.currentThread().interrupt();
-                    break;
-                }
-            } catch (Exception exception) {
-                LoggerUtil.log("Scheduler engine error: " + exception.getMessage());
+        if (changed) {
+            persistState();
+        }
+    }
+
+    private void completeLaneTaskLocked(int lane, ScheduledTask laneTask, long completedAt) {
+        payloadExecutions.remove(laneTask);
+        laneTask.markCompleted(completedAt);
+        deadlineIndex.remove(laneTask);
+        LoggerUtil.event(SchedulerEventType.COMPLETED, laneTask.getId(), laneTask.getName(), laneTask.getCategory());
+
+        lanes[lane] = null;
+        scheduleNextOccurrenceIfNeeded(laneTask, completedAt);
+    }
+
+    // Lanes are only settled at scheduling events, so views get the progress since the last
+    // one applied to their copy of the lane task, never past the instant simulated work
+    // completes. Returns the busy time added.
+    private long projectLaneForViewLocked(int lane, ScheduledTask laneCopy, long now) {
+        if (laneCopy == null || laneCopy.getStatus() != TaskStatus.RUNNING) {
+            return 0L;
+        }
+        long projectedTo = now;
+        if (!payloadExecutions.containsKey(lanes[lane])) {
+            projectedTo = Math.min(now, laneSliceStartedAt[lane] + laneCopy.getRemainingDurationMs());
+        }
+        long elapsedMs = Math.max(0L, projectedTo - laneSliceStartedAt[lane]);
+        if (elapsedMs > 0L) {
+            laneCopy.consumeTimeSlice(elapsedMs, projectedTo);
+        }
+        return elapsedMs;
+    }
+
+    private ScheduledTask copyForViewLocked(ScheduledTask task, ScheduledTask[] laneCopies) {
+        for (int lane = 0; lane < lanes.length; lane++) {
+            if (lanes[lane] == task) {
+                return laneCopies[lane];
             }
         }
+        return task.copy();
+    }
 
-        synchronized (stateLock) {
-            if (currentTask != null && currentTask.getStatus() == TaskStatus.RUNNING) {
-                currentTask.markQueued(System.currentTimeMillis());
-                enqueueQueuedTask(currentTask, System.currentTimeMillis());
-                currentTask = null;
+    private void settleLaneLocked(int lane, long now) {
+        ScheduledTask laneTask = lanes[lane];
+        if (laneTask == null) {
+            return;
+        }
+        long elapsedMs = Math.max(0L, now - laneSliceStartedAt[lane]);
+        laneSliceStartedAt[lane] = Math.max(laneSliceStartedAt[lane], now);
+        if (elapsedMs > 0L) {
+            laneTask.consumeTimeSlice(elapsedMs, now);
+            laneBusyMs[lane] += elapsedMs;
+        }
+    }
+
+    private void dispatchReadyTasksLocked(long now) {
+        for (int lane = 0; lane < lanes.length; lane++) {
+            if (lanes[lane] != null) {
+                continue;
             }
+            ScheduledTask nextTask = pollBestReadyTaskLocked(now);
+            if (nextTask == null) {
+                return;
+            }
+            nextTask.markRunning(now);
+            lanes[lane] = nextTask;
+            laneSliceStartedAt[lane] = now;
+            laneDispatchedAt[lane] = now;
+            startPayloadLocked(nextTask);
+            LoggerUtil.event(
+                    SchedulerEventType.DISPATCHED, nextTask.getId(), nextTask.getName(), nextTask.getCategory(),
+                    null, eventLane(lane), 0L, 0L, 0L, policySettings.schedulingMode()
+            );
             persistState();
         }
 
-        LoggerUtil.log("Scheduler engine stopped.");
+        // Global placement: every lane is busy, so a better ready task displaces the
+        // lowest-value running task. At most one preemption per lane per pass.
+        for (int attempt = 0; attempt < lanes.length; attempt++) {
+            ScheduledTask nextTask = peekBestReadyTaskLocked(now);
+            if (nextTask == null) {
+                return;
+            }
+
+            int lane = findLowestValueLaneLocked(now);
+            if (lane < 0) {
+                return;
+            }
+            ScheduledTask displacedTask = lanes[lane];
+            if (compareForDispatch(nextTask, displacedTask, now) >= 0) {
+                return;
+            }
+
+            pollBestReadyTaskLocked(now);
+            int favoredPriority = nextTask.getEffectivePriority(policySettings, now);
+            int displacedPriority = displacedTask.getEffectivePriority(policySettings, now);
+            PreemptionReason reason = explainSchedulingDecision(nextTask, displacedTask, favoredPriority, displacedPriority, now);
+            displacedTask.recordPreemption(now);
+            suspendPayloadLocked(displacedTask);
+            offerReadyTaskLocked(displacedTask, now);
+            LoggerUtil.event(
+                    SchedulerEventType.PREEMPTED, displacedTask.getId(), displacedTask.getName(),
+                    displacedTask.getCategory(), nextTask.getName(), eventLane(lane),
+                    reason.ordinal(), favoredPriority, displacedPriority, policySettings.schedulingMode()
+            );
+            lanes[lane] = nextTask;
+            laneSliceStartedAt[lane] = now;
+            laneDispatchedAt[lane] = now;
+            nextTask.markRunning(now);
+            startPayloadLocked(nextTask);
+            persistState();
+        }
+    }
+
+    // Only lanes that have held their task for the minimum slice are candidates; -1 if none.
+    private int findLowestValueLaneLocked(long now) {
+        int lowestLane = -1;
+        for (int lane = 0; lane < lanes.length; lane++) {
+            if (now < laneDispatchedAt[lane] + MIN_PREEMPTION_SLICE_MS) {
+                continue;
+            }
+            if (lowestLane < 0 || compareForDispatch(lanes[lane], lanes[lowestLane], now) > 0) {
+                lowestLane = lane;
+            }
+        }
+        return lowestLane;
+    }
+
+    private boolean isRunningOnLaneLocked(ScheduledTask task) {
+        for (ScheduledTask laneTask : lanes) {
+            if (task.equals(laneTask)) {
+                return true;
+            }
+        }
+        return false;
     }
 
+    private boolean releaseLaneLocked(ScheduledTask task, long now) {
+        for (int lane = 0; lane < lanes.length; lane++) {
+            if (task.equals(lanes[lane])) {
+                settleLaneLocked(lane, now);
+                lanes[lane] = null;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void requeueRunningTasksLocked(long now) {
+        for (int lane = 0; lane < lanes.length; lane++) {
+            settleLaneLocked(lane, now);
+            ScheduledTask laneTask = lanes[lane];
+            lanes[lane] = null;
+            if (laneTask != null && laneTask.getStatus() == TaskStatus.RUNNING) {
+                laneTask.markQueued(now);
+                enqueueQueuedTask(laneTask, now);
+            }
+        }
+    }
+
+    private void startPayloadLocked(ScheduledTask task) {
+        TaskPayload payload = task.getPayload();
+        if (payload == null) {
+            return;
+        }
+
+        PayloadExecution execution = payloadExecutions.get(task);
+        if (execution != null) {
+            execution.grant();
+            return;
+        }
+
+        if (payloadExecutor == null) {
+            payloadExecutor = createPayloadExecutor();
+        }
+        execution = new PayloadExecution(task.getName(), payload, this::wakeUpScheduler);
+        payloadExecutions.put(task, execution);
+        execution.start(payloadExecutor);
+    }
+
+    private void suspendPayloadLocked(ScheduledTask task) {
+        PayloadExecution execution = payloadExecutions.get(task);
+        if (execution != null) {
+            execution.revoke();
+        }
+    }
+
+    private void stopPayloadLocked(ScheduledTask task) {
+        PayloadExecution execution = payloadExecutions.remove(task);
+        if (execution != null) {
+            execution.cancel();
+        }
+    }
+
+    private void stopAllPayloadsLocked() {
+        for (PayloadExecution execution : payloadExecutions.values()) {
+            execution.cancel();
+        }
+        payloadExecutions.clear();
+        if (payloadExecutor != null) {
+            payloadExecutor.shutdownNow();
+            payloadExecutor = null;
+        }
+    }
+
+    // Virtual threads (Java 21+) let thousands of blocking payloads share a few carrier
+    // threads; older runtimes fall back to a cached pool of daemon platform threads.
+    private static ExecutorService createPayloadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException unavailable) {
+            AtomicInteger threadCounter = new AtomicInteger();
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "task-payload-" + threadCounter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    // A single lane is not worth naming in the log.
+    private int eventLane(int lane) {
+        return lanes.length == 1 ? -1 : lane;
+    }
+
+    private int utilizationPercent(long busyMs, long now) {
+        long elapsedMs = now - lanesStartedAt;
+        if (elapsedMs <= 0L) {
+            return 0;
+        }
+        return (int) Math.min(100L, Math.round((busyMs * 100.0) / elapsedMs));
+    }
+
+    // Phase one of startup: only what the dispatcher needs. History follows through
+    // loadHistoryAsync().
     private void restoreState() {
-        List<ScheduledTask> restoredTasks = stateStore.loadTasks();
-        long now = System.currentTimeMillis();
+        List<ScheduledTask> restoredTasks = stateStore.loadActiveTasks();
+        long now = clock.currentTimeMillis();
 
         synchronized (stateLock) {
             allTasks.clear();
+            dirtyTasks.clear();
             readyQueue.clear();
+            dispatchKeyExpiryQueue.clear();
+            dispatchKeys.clear();
             deferredQueue.clear();
-            currentTask = null;
+            deadlineIndex.clear();
+            historyByFinish.clear();
+            historyByCategory.clear();
+            Arrays.fill(lanes, null);
 
+            persistedCopies.clear();
             for (ScheduledTask task : restoredTasks) {
                 task.prepareForRestore(now);
-                allTasks.put(task.getId(), task);
+                registerTaskLocked(task);
+                // Restore adjustments are re-derived on every load, so they need no journal write.
+                dirtyTasks.remove(task);
+                persistedCopies.put(task.getId(), task.copy());
+                if (task.isTerminal()) {
+                    trackHistoryTaskLocked(task);
+                }
 
                 if (task.getStatus() == TaskStatus.QUEUED) {
                     enqueueQueuedTask(task, now);
@@ -398,62 +879,210 @@ public class SchedulerEngine {
         LoggerUtil.log("Loaded scheduler policy from " + stateStore.getSettingsFile() + ": " + policySettings.describe() + ".");
     }
 
-    private void activateDueTasks(long now) {
-        while (!deferredQueue.isEmpty()) {
-            ScheduledTask nextTask = deferredQueue.peek();
-            if (nextTask == null || nextTask.getReadyAtEpochMs() > now) {
-                break;
+    /**
+     * Phase two of startup: merges the persisted history into the engine. Starts the load on
+     * first call (the engine calls it from {@link #start()}, the dashboard when its History
+     * tab is opened) and returns the same future afterwards.
+     */
+    public synchronized CompletableFuture<Void> loadHistoryAsync() {
+        if (historyMerge == null) {
+            historyMerge = stateStore.loadHistoryAsync()
+                    .thenCompose(historyTasks -> submitCommand(() -> {
+                        mergeHistoryLocked(historyTasks);
+                        return null;
+                    }));
+        }
+        return historyMerge;
+    }
+
+    public boolean isHistoryLoaded() {
+        return historyLoaded;
+    }
+
+    private void mergeHistoryLocked(List<ScheduledTask> historyTasks) {
+        long now = clock.currentTimeMillis();
+        int mergedTasks = 0;
+        for (ScheduledTask task : historyTasks) {
+            ScheduledTask knownTask = allTasks.get(task.getId());
+            if (knownTask != null && knownTask.isTerminal()) {
+                continue;
+            }
+            if (knownTask != null) {
+                // An interrupted checkpoint can leave a stale active copy behind; the finished
+                // one wins, and is rewritten so the stale copy does not come back.
+                removeFromQueues(knownTask);
+                releaseLaneLocked(knownTask, now);
+                stopPayloadLocked(knownTask);
+                deadlineIndex.remove(knownTask);
+                knownTask.setChangeListener(null);
+                dirtyTasks.remove(knownTask);
+                registerTaskLocked(task);
+            } else {
+                registerTaskLocked(task);
+                dirtyTasks.remove(task);
+                persistedCopies.put(task.getId(), task.copy());
+                trackHistoryTaskLocked(task);
             }
+            mergedTasks++;
+        }
+        historyLoaded = true;
+        LoggerUtil.log("Loaded " + mergedTasks + " history task(s).");
+    }
+
+    private void trackHistoryTaskLocked(ScheduledTask task) {
+        if (!historyByFinish.offer(task)) {
+            return;
+        }
+        IndexedHeap<ScheduledTask> categoryHistory =
+                historyByCategory.computeIfAbsent(historyCategoryKey(task), ignored -> new IndexedHeap<>(HISTORY_ORDER));
+        categoryHistory.offer(task);
+        if ((historyRetention.maxTasks() > 0 && historyByFinish.size() > historyRetention.maxTasks())
+                || (historyRetention.maxTasksPerCategory() > 0
+                && categoryHistory.size() > historyRetention.maxTasksPerCategory())) {
+            historyRetentionPending = true;
+        }
+    }
+
+    // Count limits are flagged as tasks finish; only the age limit needs a timed wake-up.
+    private long nextHistoryRetentionAtLocked() {
+        long dueAt = historyRetentionPending ? 0L : Long.MAX_VALUE;
+        if (historyRetention.maxAgeMs() > 0L && !historyByFinish.isEmpty()) {
+            dueAt = Math.min(dueAt, historyByFinish.peek().getFinishedAt() + historyRetention.maxAgeMs() + 1L);
+        }
+        return dueAt == Long.MAX_VALUE ? dueAt : Math.max(dueAt, nextHistoryRetentionAt);
+    }
+
+    private void applyHistoryRetentionLocked(long now) {
+        if (now < nextHistoryRetentionAtLocked()) {
+            return;
+        }
+        nextHistoryRetentionAt = now + HISTORY_RETENTION_INTERVAL_MS;
+        historyRetentionPending = false;
+
+        List<ScheduledTask> archivedTasks = new ArrayList<>();
+        if (historyRetention.maxAgeMs() > 0L) {
+            long cutoff = now - historyRetention.maxAgeMs();
+            while (!historyByFinish.isEmpty() && historyByFinish.peek().getFinishedAt() < cutoff) {
+                archiveTaskLocked(historyByFinish.peek(), archivedTasks);
+            }
+        }
+        int maxHistoryTasks = historyRetention.maxTasks();
+        if (maxHistoryTasks > 0 && historyByFinish.size() > maxHistoryTasks) {
+            archiveOldestLocked(historyByFinish, belowRetentionLimit(maxHistoryTasks), archivedTasks);
+        }
+        int maxCategoryTasks = historyRetention.maxTasksPerCategory();
+        if (maxCategoryTasks > 0) {
+            for (IndexedHeap<ScheduledTask> categoryHistory : new ArrayList<>(historyByCategory.values())) {
+                if (categoryHistory.size() > maxCategoryTasks) {
+                    archiveOldestLocked(categoryHistory, belowRetentionLimit(maxCategoryTasks), archivedTasks);
+                }
+            }
+        }
+        finishArchivingLocked(archivedTasks, "past the history retention limits");
+    }
+
+    private void archiveOldestLocked(IndexedHeap<ScheduledTask> history, int keptTasks, List<ScheduledTask> archivedTasks) {
+        while (history.size() > Math.max(0, keptTasks)) {
+            archiveTaskLocked(history.peek(), archivedTasks);
+        }
+    }
 
-            deferredQueue.poll();
+    // Only persisted finished tasks are tracked, so dropping one loses no unsaved change.
+    private void archiveTaskLocked(ScheduledTask task, List<ScheduledTask> archivedTasks) {
+        historyByFinish.remove(task);
+        String category = historyCategoryKey(task);
+        IndexedHeap<ScheduledTask> categoryHistory = historyByCategory.get(category);
+        if (categoryHistory != null) {
+            categoryHistory.remove(task);
+            if (categoryHistory.isEmpty()) {
+                historyByCategory.remove(category);
+            }
+        }
+        allTasks.remove(task.getId());
+        persistedCopies.remove(task.getId());
+        task.setChangeListener(null);
+        archivedTasks.add(task.copy());
+    }
+
+    private void finishArchivingLocked(List<ScheduledTask> archivedTasks, String reason) {
+        if (archivedTasks.isEmpty()) {
+            return;
+        }
+        stateStore.archiveTasks(archivedTasks);
+        LoggerUtil.log("Archived " + archivedTasks.size() + " finished task(s) " + reason + ".");
+    }
+
+    private static int belowRetentionLimit(int limit) {
+        return limit - limit * HISTORY_ARCHIVE_SLACK_PERCENT / 100;
+    }
+
+    private static String historyCategoryKey(ScheduledTask task) {
+        return ArchiveQuery.normalizeCategory(task.getCategory());
+    }
+
+    private void activateDueTasks(long now) {
+        for (ScheduledTask nextTask : deferredQueue.advance(now)) {
             if (nextTask.getStatus() == TaskStatus.QUEUED) {
-                readyQueue.offer(nextTask);
-                LoggerUtil.log(
-                        "Task '" + nextTask.getName() + "' became ready at "
-                                + Instant.ofEpochMilli(nextTask.getReadyAtEpochMs()) + "."
+                offerReadyTaskLocked(nextTask, now);
+                LoggerUtil.event(
+                        SchedulerEventType.TASK_READY, nextTask.getId(), nextTask.getName(), nextTask.getCategory(),
+                        nextTask.getReadyAtEpochMs(), 0L, 0L
                 );
             }
         }
     }
 
     private void expireOverdueTasks(long now) {
-        List<ScheduledTask> overdueTasks = new ArrayList<>();
-        for (ScheduledTask task : allTasks.values()) {
-            if (task.isTerminal()) {
-                continue;
+        List<ScheduledTask> overdueRunningTasks = null;
+        while (!deadlineIndex.isEmpty()) {
+            ScheduledTask overdueTask = deadlineIndex.peek();
+            if (now <= overdueTask.getDeadlineEpochMs()) {
+                break;
             }
-            if (task.equals(currentTask)) {
+
+            deadlineIndex.poll();
+            if (isRunningOnLaneLocked(overdueTask)) {
+                // Running tasks are checked against their deadline after their time slice.
+                if (overdueRunningTasks == null) {
+                    overdueRunningTasks = new ArrayList<>();
+                }
+                overdueRunningTasks.add(overdueTask);
                 continue;
             }
-            if (now > task.getDeadlineEpochMs()) {
-                overdueTasks.add(task);
-            }
+            handleMissedTaskLocked(overdueTask, now, SchedulerEventType.EXPIRED, null);
         }
 
-        for (ScheduledTask overdueTask : overdueTasks) {
-            handleMissedTaskLocked(
-                    overdueTask,
-                    now,
-                    "Task '" + overdueTask.getName() + "' expired before it could finish."
-            );
+        if (overdueRunningTasks != null) {
+            for (ScheduledTask overdueRunningTask : overdueRunningTasks) {
+                deadlineIndex.offer(overdueRunningTask);
+            }
         }
     }
 
-    private void handleMissedTaskLocked(ScheduledTask task, long now, String message) {
+    private void handleMissedTaskLocked(ScheduledTask task, long now, SchedulerEventType eventType, String failure) {
         if (task == null || task.isTerminal()) {
             return;
         }
 
         removeFromQueues(task);
-        if (task.equals(currentTask)) {
-            currentTask = null;
-        }
+        releaseLaneLocked(task, now);
+        stopPayloadLocked(task);
 
         task.markMissed(now);
-        LoggerUtil.log(message);
+        deadlineIndex.remove(task);
+        LoggerUtil.event(eventType, task.getId(), task.getName(), task.getCategory(), null, -1, 0L, 0L, 0L, failure);
         scheduleAutomaticRetryIfNeededLocked(task, now);
     }
 
+    // Rendered here, not on the log writer: payload exceptions can override their messages.
+    private static String describeFailure(Throwable failure) {
+        try {
+            return String.valueOf(failure);
+        } catch (RuntimeException exception) {
+            return failure.getClass().getName();
+        }
+    }
+
     private void scheduleAutomaticRetryIfNeededLocked(ScheduledTask task, long now) {
         if (!policySettings.autoRetryEnabled()) {
             return;
@@ -461,10 +1090,8 @@ public class SchedulerEngine {
         if (!task.hasRetryRemaining()) {
             return;
         }
-        if (allTasks.size() >= maxTasks) {
-            LoggerUtil.log(
-                    "Automatic retry for '" + task.getName() + "' was skipped because the task limit was reached."
-            );
+        if (!reserveCapacityLocked(1)) {
+            LoggerUtil.event(SchedulerEventType.RETRY_SKIPPED, task.getId(), task.getName(), task.getCategory());
             return;
         }
 
@@ -473,12 +1100,11 @@ public class SchedulerEngine {
             return;
         }
 
-        allTasks.put(retryTask.getId(), retryTask);
+        registerTaskLocked(retryTask);
         enqueueQueuedTask(retryTask, now);
-        LoggerUtil.log(
-                "Queued automatic retry " + retryTask.getRetryAttempt() + "/" + retryTask.getRetryLimit()
-                        + " for '" + task.getName()
-                        + "' at " + Instant.ofEpochMilli(retryTask.getReadyAtEpochMs()) + "."
+        LoggerUtil.event(
+                SchedulerEventType.RETRY_QUEUED, retryTask.getId(), task.getName(), task.getCategory(),
+                retryTask.getRetryAttempt(), retryTask.getRetryLimit(), retryTask.getReadyAtEpochMs()
         );
     }
 
@@ -487,9 +1113,9 @@ public class SchedulerEngine {
             return;
         }
 
-        if (allTasks.size() >= maxTasks) {
-            LoggerUtil.log(
-                    "Recurring follow-up for '" + completedTask.getName() + "' was skipped because the task limit was reached."
+        if (!reserveCapacityLocked(1)) {
+            LoggerUtil.event(
+                    SchedulerEventType.OCCURRENCE_SKIPPED, completedTask.getId(), completedTask.getName(), completedTask.getCategory()
             );
             return;
         }
@@ -499,17 +1125,16 @@ public class SchedulerEngine {
             return;
         }
 
-        allTasks.put(nextOccurrence.getId(), nextOccurrence);
+        registerTaskLocked(nextOccurrence);
         enqueueQueuedTask(nextOccurrence, now);
-        LoggerUtil.log(
-                "Scheduled next occurrence for '" + completedTask.getName()
-                        + "' (" + nextOccurrence.getOccurrenceIndex() + "/" + nextOccurrence.getRecurrenceLimit()
-                        + ") at " + Instant.ofEpochMilli(nextOccurrence.getReadyAtEpochMs()) + "."
+        LoggerUtil.event(
+                SchedulerEventType.OCCURRENCE_SCHEDULED, nextOccurrence.getId(), completedTask.getName(), completedTask.getCategory(),
+                nextOccurrence.getOccurrenceIndex(), nextOccurrence.getRecurrenceLimit(), nextOccurrence.getReadyAtEpochMs()
         );
     }
 
 
-private SchedulerMetrics buildMetrics(List<ScheduledTask> tasks, long now) {
+private SchedulerMetrics buildMetrics(List<ScheduledTask> tasks, List<LaneSnapshot> laneSnapshots, long now) {
     int queued = 0;
     int deferred = 0;
     int runningCount = 0;
@@ -576,6 +1201,16 @@ private SchedulerMetrics buildMetrics(List<ScheduledTask> tasks, long now) {
     int deadlineOutcomes = completed + missed;
     int onTimeRate = deadlineOutcomes == 0 ? 100 : (int) Math.round((completed * 100.0) / deadlineOutcomes);
 
+    int busyLanes = 0;
+    int totalUtilization = 0;
+    for (LaneSnapshot laneSnapshot : laneSnapshots) {
+        if (laneSnapshot.isBusy()) {
+            busyLanes++;
+        }
+        totalUtilization += laneSnapshot.utilizationPercent();
+    }
+    int laneUtilization = laneSnapshots.isEmpty() ? 0 : totalUtilization / laneSnapshots.size();
+
     return new SchedulerMetrics(
             tasks.size(),
             activeTasks,
@@ -592,7 +1227,11 @@ private SchedulerMetrics buildMetrics(List<ScheduledTask> tasks, long now) {
             averageExecuted,
             averageWait,
             onTimeRate,
-            preemptions
+            preemptions,
+            laneSnapshots.size(),
+            busyLanes,
+            laneUtilization,
+            stateStore.getSyncStatistics()
     );
 }
 
@@ -602,9 +1241,9 @@ private SchedulerMetrics buildMetrics(List<ScheduledTask> tasks, long now) {
         }
         removeFromQueues(task);
         if (task.getReadyAtEpochMs() > now) {
-            deferredQueue.offer(task);
+            deferredQueue.schedule(task, task.getReadyAtEpochMs());
         } else {
-            readyQueue.offer(task);
+            offerReadyTaskLocked(task, now);
         }
     }
 
@@ -612,153 +1251,190 @@ private SchedulerMetrics buildMetrics(List<ScheduledTask> tasks, long now) {
         if (task == null) {
             return;
         }
-        readyQueue.remove(task);
-        deferredQueue.remove(task);
+        removeReadyTaskLocked(task);
+        deferredQueue.cancel(task);
     }
 
-    private ScheduledTask peekBestReadyTaskLocked(long now) {
-        ScheduledTask best = null;
-        for (ScheduledTask candidate : readyQueue) {
-            if (candidate.getStatus() != TaskStatus.QUEUED) {
-                continue;
-            }
-            if (candidate.isDeferred(now)) {
-                continue;
-            }
-            if (best == null || compareForDispatch(candidate, best, now) < 0) {
-                best = candidate;
-            }
-        }
-        return best;
+    private void offerReadyTaskLocked(ScheduledTask task, long now) {
+        dispatchKeys.put(task, task.getDispatchKey(policySettings, now));
+        readyQueue.offer(task);
+        dispatchKeyExpiryQueue.offer(task);
     }
 
-    private ScheduledTask pollBestReadyTaskLocked(long now) {
-        ScheduledTask best = peekBestReadyTaskLocked(now);
-        if (best != null) {
-            readyQueue.remove(best);
+    private void removeReadyTaskLocked(ScheduledTask task) {
+        if (readyQueue.remove(task)) {
+            dispatchKeyExpiryQueue.remove(task);
+            dispatchKeys.remove(task);
         }
-        return best;
     }
 
-    private int compareForDispatch(ScheduledTask left, ScheduledTask right, long now) {
-        switch (policySettings.schedulingMode()) {
-            case PRIORITY_FIRST -> {
-                int effectivePriorityCompare = Integer.compare(
-                        left.getEffectivePriority(policySettings, now),
-                        right.getEffectivePriority(policySettings, now)
-                );
-                if (effectivePriorityCompare != 0) {
-                    return effectivePriorityCompare;
-                }
-
-                int deadlineCompare = Long.compare(left.getDeadlineEpochMs(), right.getDeadlineEpochMs());
-                if (deadlineCompare != 0) {
-                    return deadlineCompare;
-                }
-            }
-            case DEADLINE_FIRST -> {
-                int slackCompare = Long.compare(left.getSlackMs(now), right.getSlackMs(now));
-                if (slackCompare != 0) {
-                    return slackCompare;
-                }
-
-                int effectivePriorityCompare = Integer.compare(
-                        left.getEffectivePriority(policySettings, now),
-                        right.getEffectivePriority(policySettings, now)
-                );
-                if (effectivePriorityCompare != 0) {
-                    return effectivePriorityCompare;
-                }
-            }
-            case ADAPTIVE -> {
-                boolean leftAtRisk = left.isAtRisk(policySettings, now);
-                boolean rightAtRisk = right.isAtRisk(policySettings, now);
-                if (leftAtRisk != rightAtRisk) {
-                    return leftAtRisk ? -1 : 1;
-                }
-
-                int effectivePriorityCompare = Integer.compare(
-                        left.getEffectivePriority(policySettings, now),
-                        right.getEffectivePriority(policySettings, now)
-                );
-                if (effectivePriorityCompare != 0) {
-                    return effectivePriorityCompare;
-                }
-
-                int slackCompare = Long.compare(left.getSlackMs(now), right.getSlackMs(now));
-                if (slackCompare != 0) {
-                    return slackCompare;
-                }
+    // Aging and deadline urgency only move a task's key at known instants, so only the
+    // keys that reached their expiry are recomputed and sifted back into place.
+    private void refreshExpiredDispatchKeysLocked(long now) {
+        while (!dispatchKeyExpiryQueue.isEmpty()) {
+            ScheduledTask task = dispatchKeyExpiryQueue.peek();
+            if (dispatchKeys.get(task).expiresAt() > now) {
+                break;
             }
+            dispatchKeys.put(task, task.getDispatchKey(policySettings, now));
+            readyQueue.update(task);
+            dispatchKeyExpiryQueue.update(task);
         }
+    }
 
-        int priorityCompare = Integer.compare(left.getPriority(), right.getPriority());
-        if (priorityCompare != 0) {
-            return priorityCompare;
+    private void rebuildDispatchKeysLocked(long now) {
+        for (ScheduledTask task : readyQueue.toList()) {
+            dispatchKeys.put(task, task.getDispatchKey(policySettings, now));
         }
+        readyQueue.heapify();
+        dispatchKeyExpiryQueue.heapify();
+    }
 
-        int deadlineCompare = Long.compare(left.getDeadlineEpochMs(), right.getDeadlineEpochMs());
-        if (deadlineCompare != 0) {
-            return deadlineCompare;
+    private ScheduledTask peekBestReadyTaskLocked(long now) {
+        refreshExpiredDispatchKeysLocked(now);
+        while (!readyQueue.isEmpty()) {
+            ScheduledTask best = readyQueue.peek();
+            if (best.getStatus() == TaskStatus.QUEUED && !best.isDeferred(now)) {
+                return best;
+            }
+            removeReadyTaskLocked(best);
+            if (best.getStatus() == TaskStatus.QUEUED) {
+                deferredQueue.schedule(best, best.getReadyAtEpochMs());
+            }
         }
+        return null;
+    }
 
-        int readyCompare = Long.compare(left.getReadyAtEpochMs(), right.getReadyAtEpochMs());
-        if (readyCompare != 0) {
-            return readyCompare;
+    private ScheduledTask pollBestReadyTaskLocked(long now) {
+        ScheduledTask best = peekBestReadyTaskLocked(now);
+        if (best != null) {
+            removeReadyTaskLocked(best);
         }
+        return best;
+    }
+
+    private int compareReadyTasks(ScheduledTask left, ScheduledTask right) {
+        return dispatchKeys.get(left).compareTo(dispatchKeys.get(right), policySettings.schedulingMode());
+    }
 
-        return Long.compare(left.getCreatedAt(), right.getCreatedAt());
+    private int compareForDispatch(ScheduledTask left, ScheduledTask right, long now) {
+        return left.getDispatchKey(policySettings, now)
+                .compareTo(right.getDispatchKey(policySettings, now), policySettings.schedulingMode());
     }
 
-    private String explainSchedulingDecision(ScheduledTask favored, ScheduledTask displaced, long now) {
+    private PreemptionReason explainSchedulingDecision(
+            ScheduledTask favored,
+            ScheduledTask displaced,
+            int favoredEffectivePriority,
+            int displacedEffectivePriority,
+            long now
+    ) {
         if (policySettings.schedulingMode() == SchedulingMode.ADAPTIVE) {
             boolean favoredAtRisk = favored.isAtRisk(policySettings, now);
             boolean displacedAtRisk = displaced.isAtRisk(policySettings, now);
             if (favoredAtRisk && !displacedAtRisk) {
-                return "deadline urgency";
+                return PreemptionReason.DEADLINE_URGENCY;
             }
         }
 
-        int favoredEffectivePriority = favored.getEffectivePriority(policySettings, now);
-        int displacedEffectivePriority = displaced.getEffectivePriority(policySettings, now);
         if (favoredEffectivePriority < displacedEffectivePriority) {
-            return "effective priority " + favoredEffectivePriority + " over " + displacedEffectivePriority;
+            return PreemptionReason.EFFECTIVE_PRIORITY;
         }
 
         if (favored.getSlackMs(now) < displaced.getSlackMs(now)) {
-            return "earlier deadline slack";
+            return PreemptionReason.EARLIER_DEADLINE_SLACK;
         }
 
-        return "the selected " + policySettings.schedulingMode() + " policy";
+        return PreemptionReason.SELECTED_POLICY;
     }
 
-    private long computeIdleSleepLocked(long now) {
-        if (!readyQueue.isEmpty()) {
-            return 25L;
+    private long computeNextEventAtLocked(long now) {
+        long nextEventAt = Long.MAX_VALUE;
+
+        for (int lane = 0; lane < lanes.length; lane++) {
+            ScheduledTask laneTask = lanes[lane];
+            if (laneTask == null) {
+                continue;
+            }
+            if (!payloadExecutions.containsKey(laneTask)) {
+                nextEventAt = Math.min(nextEventAt, laneSliceStartedAt[lane] + laneTask.getRemainingDurationMs());
+            }
+            nextEventAt = Math.min(nextEventAt, laneTask.getDeadlineEpochMs() + 1L);
         }
 
-        ScheduledTask nextDeferred = deferredQueue.peek();
-        if (nextDeferred == null) {
-            return 150L;
+        if (!deadlineIndex.isEmpty()) {
+            nextEventAt = Math.min(nextEventAt, deadlineIndex.peek().getDeadlineEpochMs() + 1L);
+        }
+        nextEventAt = Math.min(nextEventAt, deferredQueue.nextDueAtHint());
+        nextEventAt = Math.min(nextEventAt, nextHistoryRetentionAtLocked());
+        if (!dispatchKeyExpiryQueue.isEmpty()) {
+            nextEventAt = Math.min(nextEventAt, dispatchKeys.get(dispatchKeyExpiryQueue.peek()).expiresAt());
         }
+        return Math.min(nextEventAt, nextSlackCrossingLocked(now));
+    }
 
-        long waitTime = nextDeferred.getReadyAtEpochMs() - now;
-        if (waitTime <= 25L) {
-            return 25L;
+    // A running task's slack stays constant while a queued task's slack shrinks, so under
+    // slack-aware policies a waiting task can overtake a running one at a computable instant.
+    // A lane still inside its minimum slice is re-examined when the slice ends.
+    private long nextSlackCrossingLocked(long now) {
+        if (readyQueue.isEmpty()) {
+            return Long.MAX_VALUE;
         }
-        return Math.min(250L, waitTime);
+
+        ScheduledTask readyTask = readyQueue.peek();
+        boolean slackAware = policySettings.schedulingMode() != SchedulingMode.PRIORITY_FIRST;
+        long readySlackMs = readyTask.getSlackMs(now);
+        long crossingAt = Long.MAX_VALUE;
+        for (int lane = 0; lane < lanes.length; lane++) {
+            ScheduledTask laneTask = lanes[lane];
+            if (laneTask == null) {
+                return Long.MAX_VALUE;
+            }
+            long preemptibleAt = laneDispatchedAt[lane] + MIN_PREEMPTION_SLICE_MS;
+            if (now < preemptibleAt && compareForDispatch(readyTask, laneTask, now) < 0) {
+                crossingAt = Math.min(crossingAt, preemptibleAt);
+                continue;
+            }
+            if (!slackAware) {
+                continue;
+            }
+            long gapMs = readySlackMs - laneTask.getSlackMs(now);
+            if (gapMs >= 0L) {
+                crossingAt = Math.min(crossingAt, Math.max(preemptibleAt, now + gapMs + 1L));
+            }
+        }
+        return crossingAt;
     }
 
     private void persistState() {
-        stateStore.saveTasks(allTasks.values());
-        stateStore.savePolicySettings(policySettings);
+        List<ScheduledTask> changedTasks = new ArrayList<>(dirtyTasks.size());
+        for (ScheduledTask task : dirtyTasks) {
+            ScheduledTask frozenCopy = task.copy();
+            persistedCopies.put(task.getId(), frozenCopy);
+            changedTasks.add(frozenCopy);
+            if (task.isTerminal()) {
+                trackHistoryTaskLocked(task);
+            }
+        }
+        dirtyTasks.clear();
+        stateStore.saveTaskChanges(changedTasks, persistedCopies.size(), this::captureCheckpointViewLocked);
+
+        if (policySettingsChanged) {
+            stateStore.savePolicySettings(policySettings);
+            policySettingsChanged = false;
+        }
+        if (logSettingsChanged) {
+            stateStore.saveLogSettings(logSettings);
+            logSettingsChanged = false;
+        }
+    }
+
+    private List<ScheduledTask> captureCheckpointViewLocked() {
+        return new ArrayList<>(persistedCopies.values());
     }
 
     private void wakeUpScheduler() {
-        Thread thread = schedulerThread;
-        if (thread != null) {
-            thread.interrupt();
-        }
+        wakeUpSignal.signal();
     }
 
     private Comparator<ScheduledTask> taskComparatorForViews(long now) {
@@ -794,14 +1470,38 @@ private SchedulerMetrics buildMetrics(List<ScheduledTask> tasks, long now) {
         };
     }
 
+    private void registerTaskLocked(ScheduledTask task) {
+        allTasks.put(task.getId(), task);
+        task.setChangeListener(dirtyTasks::add);
+        dirtyTasks.add(task);
+        if (!task.isTerminal()) {
+            deadlineIndex.offer(task);
+        }
+    }
+
     private void ensureCapacityLocked() {
-        if (allTasks.size() >= maxTasks) {
+        if (!reserveCapacityLocked(1)) {
             throw new IllegalStateException("Maximum task limit reached (" + maxTasks + ").");
         }
     }
 
+    // Finished tasks only hold capacity until it is needed; the oldest are archived first.
+    private boolean reserveCapacityLocked(int taskCount) {
+        int excess = allTasks.size() + taskCount - maxTasks;
+        if (excess > 0 && !historyByFinish.isEmpty()) {
+            List<ScheduledTask> archivedTasks = new ArrayList<>();
+            archiveOldestLocked(
+                    historyByFinish,
+                    historyByFinish.size() - excess - maxTasks * HISTORY_ARCHIVE_SLACK_PERCENT / 100,
+                    archivedTasks
+            );
+            finishArchivingLocked(archivedTasks, "to make room for new tasks");
+        }
+        return allTasks.size() + taskCount <= maxTasks;
+    }
+
     private void validateTaskConfiguration(TaskConfiguration configuration, long minDeadlineBase) {
-        long now = System.currentTimeMillis();
+        long now = clock.currentTimeMillis();
 
         if (configuration == null) {
             throw new IllegalArgumentException("Task configuration is required.");
@@ -834,4 +1534,22 @@ private SchedulerMetrics buildMetrics(List<ScheduledTask> tasks, long now) {
             throw new IllegalArgumentException("Retry backoff must be at least 100 ms when retries are enabled.");
         }
     }
+
+    private static final class EngineCommand<T> implements Runnable {
+        private final Supplier<T> action;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+
+        private EngineCommand(Supplier<T> action) {
+            this.action = action;
+        }
+
+        @Override
+        public void run() {
+            try {
+                result.complete(action.get());
+            } catch (RuntimeException exception) {
+                result.completeExceptionally(exception);
+            }
+        }
+    }
 }
@@ -0,0 +1,330 @@
+package scheduler;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * One entry of the scheduler event log: a {@link SchedulerEventType}, the task it concerns and
+ * up to three numbers, stored as a compact binary record. The log line is rendered the first
+ * time someone asks for it and then kept.
+ *
+ * <p>A record is {@code type, timestamp, task id, task name, related name, lane, three
+ * values, detail}. Numbers are varints; task ids that parse as UUIDs take 16 raw bytes.</p>
+ */
+public final class SchedulerEvent {
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
+
+    private final long timestamp;
+    private final SchedulerEventType type;
+    private final String taskId;
+    private final String taskName;
+    private final String relatedName;
+    private final int lane;
+    private final long first;
+    private final long second;
+    private final long third;
+    private final String detail;
+    private volatile String text;
+
+    SchedulerEvent(
+            long timestamp,
+            SchedulerEventType type,
+            String taskId,
+            String taskName,
+            String relatedName,
+            int lane,
+            long first,
+            long second,
+            long third,
+            String detail
+    ) {
+        this.timestamp = timestamp;
+        this.type = type;
+        this.taskId = taskId;
+        this.taskName = taskName;
+        this.relatedName = relatedName;
+        this.lane = lane;
+        this.first = first;
+        this.second = second;
+        this.third = third;
+        this.detail = detail;
+    }
+
+    /**
+     * A line from a plain-text log written by an earlier version, shown as is.
+     */
+    static SchedulerEvent preformatted(String line) {
+        SchedulerEvent event = new SchedulerEvent(0L, SchedulerEventType.MESSAGE, null, null, null, -1, 0L, 0L, 0L, line);
+        event.text = line;
+        return event;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public SchedulerEventType getType() {
+        return type;
+    }
+
+    public String getTaskId() {
+        return taskId;
+    }
+
+    public String render() {
+        String rendered = text;
+        if (rendered == null) {
+            LocalDateTime loggedAt = LocalDateTime.ofInstant(Instant.ofEpochMilli(timestamp), ZoneId.systemDefault());
+            rendered = "[" + loggedAt.format(FORMATTER) + "] " + describe();
+            text = rendered;
+        }
+        return rendered;
+    }
+
+    @Override
+    public String toString() {
+        return render();
+    }
+
+    private String describe() {
+        return switch (type) {
+            case MESSAGE -> detail;
+            case TASK_READY -> "Task '" + taskName + "' became ready at " + Instant.ofEpochMilli(first) + ".";
+            case DISPATCHED -> "Running task '" + taskName + "'" + describeLane() + " using " + detail + ".";
+            case PREEMPTED -> "Preempted task '" + taskName + "'" + describeLane()
+                    + " for '" + relatedName + "' due to "
+                    + PreemptionReason.fromCode(first).describe(second, third, detail) + ".";
+            case COMPLETED -> "Task '" + taskName + "' completed.";
+            case EXPIRED -> "Task '" + taskName + "' expired before it could finish.";
+            case MISSED -> "Task '" + taskName + "' missed its deadline while running.";
+            case FAILED -> "Task '" + taskName + "' failed: " + detail + ".";
+            case RETRY_QUEUED -> "Queued automatic retry " + first + "/" + second
+                    + " for '" + taskName + "' at " + Instant.ofEpochMilli(third) + ".";
+            case RETRY_SKIPPED -> "Automatic retry for '" + taskName + "' was skipped because the task limit was reached.";
+            case OCCURRENCE_SCHEDULED -> "Scheduled next occurrence for '" + taskName
+                    + "' (" + first + "/" + second + ") at " + Instant.ofEpochMilli(third) + ".";
+            case OCCURRENCE_SKIPPED -> "Recurring follow-up for '" + taskName + "' was skipped because the task limit was reached.";
+            case SUPPRESSED -> first + " similar " + detail + " events suppressed.";
+            case DROPPED -> first + " log entries were dropped because the log writer fell behind.";
+        };
+    }
+
+    private String describeLane() {
+        return lane < 0 ? "" : " on lane " + (lane + 1);
+    }
+
+    void encode(Output output) {
+        output.writeVarLong(type.ordinal());
+        output.writeVarLong(timestamp);
+        output.writeId(taskId);
+        output.writeString(taskName);
+        output.writeString(relatedName);
+        output.writeSignedVarLong(lane);
+        output.writeSignedVarLong(first);
+        output.writeSignedVarLong(second);
+        output.writeSignedVarLong(third);
+        output.writeString(detail);
+    }
+
+    static SchedulerEvent decode(byte[] data, int offset, int length) throws IOException {
+        Input input = new Input(data, offset, offset + length);
+        SchedulerEventType type = SchedulerEventType.fromCode((int) input.readVarLong());
+        long timestamp = input.readVarLong();
+        return new SchedulerEvent(
+                timestamp,
+                type,
+                input.readId(),
+                input.readString(),
+                input.readString(),
+                (int) input.readSignedVarLong(),
+                input.readSignedVarLong(),
+                input.readSignedVarLong(),
+                input.readSignedVarLong(),
+                input.readString()
+        );
+    }
+
+    /**
+     * Growable byte buffer the log writer encodes records into.
+     */
+    static final class Output {
+        private byte[] buffer = new byte[4096];
+        private int size;
+
+        void reset() {
+            size = 0;
+        }
+
+        int size() {
+            return size;
+        }
+
+        /**
+         * Discards everything written after {@code position}, such as a half-encoded record.
+         */
+        void truncate(int position) {
+            size = Math.min(size, Math.max(0, position));
+        }
+
+        byte[] array() {
+            return buffer;
+        }
+
+        void writeByte(int value) {
+            ensureCapacity(1);
+            buffer[size++] = (byte) value;
+        }
+
+        void writeInt(int value) {
+            ensureCapacity(4);
+            for (int shift = 24; shift >= 0; shift -= 8) {
+                buffer[size++] = (byte) (value >>> shift);
+            }
+        }
+
+        void writeVarLong(long value) {
+            ensureCapacity(10);
+            while ((value & ~0x7FL) != 0L) {
+                buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[size++] = (byte) value;
+        }
+
+        void writeSignedVarLong(long value) {
+            writeVarLong((value << 1) ^ (value >> 63));
+        }
+
+        /**
+         * {@code 0} is null; otherwise the UTF-8 length plus one, then the bytes.
+         */
+        void writeString(String value) {
+            if (value == null) {
+                writeVarLong(0L);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(bytes.length + 1L);
+            ensureCapacity(bytes.length);
+            System.arraycopy(bytes, 0, buffer, size, bytes.length);
+            size += bytes.length;
+        }
+
+        void writeId(String value) {
+            UUID uuid = parseUuid(value);
+            if (uuid == null) {
+                writeByte(0);
+                writeString(value);
+                return;
+            }
+            writeByte(1);
+            writeFixedLong(uuid.getMostSignificantBits());
+            writeFixedLong(uuid.getLeastSignificantBits());
+        }
+
+        /**
+         * Overwrites a length reserved earlier with {@link #writeInt(int)}.
+         */
+        void patchInt(int position, int value) {
+            for (int index = 0; index < 4; index++) {
+                buffer[position + index] = (byte) (value >>> (24 - index * 8));
+            }
+        }
+
+        private void writeFixedLong(long value) {
+            ensureCapacity(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                buffer[size++] = (byte) (value >>> shift);
+            }
+        }
+
+        private void ensureCapacity(int extraBytes) {
+            if (size + extraBytes > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extraBytes));
+            }
+        }
+
+        private static UUID parseUuid(String value) {
+            if (value == null || value.length() != 36) {
+                return null;
+            }
+            try {
+                UUID uuid = UUID.fromString(value);
+                return uuid.toString().equals(value) ? uuid : null;
+            } catch (IllegalArgumentException notUuid) {
+                return null;
+            }
+        }
+    }
+
+    private static final class Input {
+        private final byte[] data;
+        private final int limit;
+        private int position;
+
+        private Input(byte[] data, int offset, int limit) {
+            this.data = data;
+            this.position = offset;
+            this.limit = limit;
+        }
+
+        private byte readByte() throws IOException {
+            if (position >= limit) {
+                throw new IOException("Event record is truncated.");
+            }
+            return data[position++];
+        }
+
+        private long readVarLong() throws IOException {
+            long value = 0L;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte next = readByte();
+                value |= (long) (next & 0x7F) << shift;
+                if ((next & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Malformed varint.");
+        }
+
+        private long readSignedVarLong() throws IOException {
+            long encoded = readVarLong();
+            return (encoded >>> 1) ^ -(encoded & 1L);
+        }
+
+        private String readString() throws IOException {
+            long encoded = readVarLong();
+            if (encoded == 0L) {
+                return null;
+            }
+            long length = encoded - 1L;
+            if (length > limit - position) {
+                throw new IOException("Event string is truncated.");
+            }
+            String value = new String(data, position, (int) length, StandardCharsets.UTF_8);
+            position += (int) length;
+            return value;
+        }
+
+        private String readId() throws IOException {
+            if (readByte() == 0) {
+                return readString();
+            }
+            return new UUID(readFixedLong(), readFixedLong()).toString();
+        }
+
+        private long readFixedLong() throws IOException {
+            long value = 0L;
+            for (int index = 0; index < 8; index++) {
+                value = (value << 8) | (readByte() & 0xFFL);
+            }
+            return value;
+        }
+    }
+}
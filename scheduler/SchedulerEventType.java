@@ -0,0 +1,52 @@
+package scheduler;
+
+/**
+ * Kinds of entries in the scheduler event log, each with the {@link LogLevel} it is logged
+ * at. The ordinal is stored on disk, so new types are only ever appended.
+ */
+public enum SchedulerEventType {
+    /** Free-form text. */
+    MESSAGE(LogLevel.INFO),
+    /** A deferred task reached its ready time; first value is the ready time. */
+    TASK_READY(LogLevel.DEBUG),
+    /** A task started or resumed on a lane; detail is the scheduling mode. */
+    DISPATCHED(LogLevel.DEBUG),
+    /**
+     * A running task was displaced; the related name is the favored task, values are the
+     * {@link PreemptionReason} ordinal and the favored and displaced effective priorities.
+     */
+    PREEMPTED(LogLevel.DEBUG),
+    COMPLETED(LogLevel.INFO),
+    /** A queued task passed its deadline before it could finish. */
+    EXPIRED(LogLevel.WARN),
+    /** A running task passed its deadline. */
+    MISSED(LogLevel.WARN),
+    /** A task's payload threw; detail is the failure. */
+    FAILED(LogLevel.ERROR),
+    /** Values are the retry attempt, the retry limit and the retry's ready time. */
+    RETRY_QUEUED(LogLevel.INFO),
+    RETRY_SKIPPED(LogLevel.WARN),
+    /** Values are the occurrence index, the recurrence limit and the occurrence's ready time. */
+    OCCURRENCE_SCHEDULED(LogLevel.DEBUG),
+    OCCURRENCE_SKIPPED(LogLevel.WARN),
+    /** Sampling dropped events; first value is how many, detail is their type. */
+    SUPPRESSED(LogLevel.WARN),
+    /** The log ring stayed full and entries were not logged; first value is how many. */
+    DROPPED(LogLevel.WARN);
+
+    private static final SchedulerEventType[] VALUES = values();
+
+    private final LogLevel level;
+
+    SchedulerEventType(LogLevel level) {
+        this.level = level;
+    }
+
+    public LogLevel getLevel() {
+        return level;
+    }
+
+    static SchedulerEventType fromCode(int code) {
+        return code >= 0 && code < VALUES.length ? VALUES[code] : MESSAGE;
+    }
+}
@@ -16,6 +16,10 @@ public record SchedulerMetrics(
         long averageExecutedDurationMs,
         long averageWaitTimeMs,
         int onTimeCompletionRate,
-        int totalPreemptions
+        int totalPreemptions,
+        int executionLanes,
+        int busyLanes,
+        int laneUtilizationPercent,
+        SyncStatistics syncStatistics
 ) {
 }
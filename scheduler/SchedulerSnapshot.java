@@ -5,8 +5,10 @@ import java.util.List;
 public record SchedulerSnapshot(
         List<ScheduledTask> tasks,
         ScheduledTask currentTask,
+        List<LaneSnapshot> lanes,
         SchedulerMetrics metrics,
         SchedulerPolicySettings policySettings,
-        long generatedAt
+        long generatedAt,
+        boolean historyLoaded
 ) {
 }
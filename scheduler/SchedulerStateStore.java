@@ -1,61 +1,923 @@
 package scheduler;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
 
 public class SchedulerStateStore {
+    // The journal is folded into a fresh snapshot once it holds more records than this
+    // or than there are live tasks, whichever is larger.
+    private static final int MIN_COMPACTION_RECORDS = 1024;
+    private static final long CHECKPOINT_INTERVAL_MS = 5L * 60_000L;
+    private static final long DEFAULT_GROUP_COMMIT_WINDOW_MS = 20L;
+    private static final long DEFAULT_SYNC_INTERVAL_MS = 1000L;
+    private static final int MAX_FRAME_BYTES = 16 * 1024 * 1024;
+    private static final String SEALED_JOURNAL_PREFIX = "tasks.journal.";
+    // Terminal tasks never change again, so each is appended once to a history segment and
+    // checkpoints rewrite only the active tasks.
+    private static final String HISTORY_SEGMENT_PREFIX = "history-";
+    private static final String HISTORY_SEGMENT_SUFFIX = ".dat";
+    private static final int MAX_HISTORY_SEGMENT_TASKS = 10_000;
+    private static final int MAX_HISTORY_BLOCK_TASKS = 1_000;
+
     private final Path dataDirectory;
     private final Path stateFile;
+    private final Path legacyStateFile;
+    private final Path journalFile;
     private final Path settingsFile;
+    private final Path logSettingsFile;
+    private final PersistenceMode persistenceMode;
+    private final DurabilityLevel durabilityLevel;
+    private final long groupCommitWindowMs;
+    private final SyncPolicy syncPolicy;
+    private final ScheduledExecutorService persistenceExecutor;
+    private final Object journalWriteLock = new Object();
+    private final Object checkpointWriteLock = new Object();
+    private final Object syncStatisticsLock = new Object();
+    private final MappedTaskTable taskTable;
+    private final TaskArchive taskArchive;
+    // Which history segment holds each finished task, so archiving can drop it from there.
+    private final Map<String, Long> historySegmentsByTaskId = new HashMap<>();
+    // Finished tasks written before that index was loaded. They stay in the snapshot or task
+    // table until drainDeferredHistory() moves them into history. Guarded by checkpointWriteLock.
+    private final Map<String, ScheduledTask> deferredHistoryTasks = new LinkedHashMap<>();
+    private boolean historyDrainScheduled;
+
+    // Commit queue, in submission order. A queued checkpoint seals the journal right after
+    // the first changeIndex queued changes, which is exactly where its view was captured.
+    private List<ScheduledTask> queuedChanges = new ArrayList<>();
+    private List<QueuedCheckpoint> queuedCheckpoints = new ArrayList<>();
+    private boolean commitScheduled;
+    private int changesSinceCheckpoint;
+
+    private int journalRecords;
+    private boolean journalUnsynced;
+    private boolean taskTableOpen;
+    private boolean taskTableUnsynced;
+    private long syncCount;
+    private long totalSyncNanos;
+    private long maxSyncNanos;
+    private long lastSealedSegment;
+    private long checkpointSequence;
+    private long lastCheckpointAt;
+    private PendingCheckpoint pendingCheckpoint;
+    private CompletableFuture<List<ScheduledTask>> historyLoad;
+    private boolean checkpointScheduled;
+    private long writtenCheckpointSequence;
+    private long openHistorySegment = 1L;
+    private int openHistorySegmentTasks;
 
     public SchedulerStateStore() {
-        this(Path.of(System.getProperty("user.home"), ".real-time-scheduler"));
+        this(PersistenceMode.JOURNAL);
+    }
+
+    public SchedulerStateStore(PersistenceMode persistenceMode) {
+        this(defaultDataDirectory(), persistenceMode);
     }
 
     public SchedulerStateStore(Path dataDirectory) {
+        this(dataDirectory, PersistenceMode.JOURNAL);
+    }
+
+    public SchedulerStateStore(Path dataDirectory, PersistenceMode persistenceMode) {
+        this(dataDirectory, persistenceMode, DurabilityLevel.BATCHED, DEFAULT_GROUP_COMMIT_WINDOW_MS);
+    }
+
+    public SchedulerStateStore(
+            Path dataDirectory,
+            PersistenceMode persistenceMode,
+            DurabilityLevel durabilityLevel,
+            long groupCommitWindowMs
+    ) {
+        this(dataDirectory, persistenceMode, durabilityLevel, groupCommitWindowMs, SyncPolicy.PERIODIC, DEFAULT_SYNC_INTERVAL_MS);
+    }
+
+    public SchedulerStateStore(
+            Path dataDirectory,
+            PersistenceMode persistenceMode,
+            DurabilityLevel durabilityLevel,
+            long groupCommitWindowMs,
+            SyncPolicy syncPolicy,
+            long syncIntervalMs
+    ) {
         this.dataDirectory = dataDirectory;
-        this.stateFile = dataDirectory.resolve("tasks.ser");
+        this.stateFile = dataDirectory.resolve("tasks.dat");
+        this.legacyStateFile = dataDirectory.resolve("tasks.ser");
+        this.journalFile = dataDirectory.resolve("tasks.journal");
         this.settingsFile = dataDirectory.resolve("scheduler-settings.ser");
+        this.logSettingsFile = dataDirectory.resolve("scheduler-log-settings.ser");
+        this.persistenceMode = persistenceMode == null ? PersistenceMode.SNAPSHOT : persistenceMode;
+        this.durabilityLevel = durabilityLevel == null ? DurabilityLevel.BATCHED : durabilityLevel;
+        this.groupCommitWindowMs = Math.max(0L, groupCommitWindowMs);
+        this.syncPolicy = syncPolicy == null ? SyncPolicy.PERIODIC : syncPolicy;
+        this.taskTable = new MappedTaskTable(dataDirectory);
+        this.taskArchive = new TaskArchive(dataDirectory);
+        this.persistenceExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "scheduler-persistence");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.lastCheckpointAt = System.currentTimeMillis();
+        if (this.syncPolicy == SyncPolicy.PERIODIC) {
+            long intervalMs = Math.max(1L, syncIntervalMs);
+            persistenceExecutor.scheduleWithFixedDelay(this::syncPeriodically, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public static Path defaultDataDirectory() {
+        return Path.of(System.getProperty("user.home"), ".real-time-scheduler");
+    }
+
+    /**
+     * Persists a state change. {@code changedTasks} must be private copies the caller will not
+     * touch again. In snapshot mode a full checkpoint of {@code checkpointView} is requested;
+     * in journal mode the changes are appended, and a checkpoint compacts the journal once it
+     * outgrows the live task set or grows stale; in mapped mode the task table is updated in
+     * place. The durability level decides whether this
+     * waits for the write, leaves it to the next group commit, or leaves it to checkpoints.
+     */
+    public void saveTaskChanges(
+            List<ScheduledTask> changedTasks,
+            int liveTaskCount,
+            Supplier<List<ScheduledTask>> checkpointView
+    ) {
+        synchronized (this) {
+            changesSinceCheckpoint += changedTasks.size();
+            boolean queued = persistenceMode != PersistenceMode.SNAPSHOT && durabilityLevel != DurabilityLevel.NONE;
+            if (queued) {
+                queuedChanges.addAll(changedTasks);
+            }
+
+            boolean checkpointDue;
+            if (persistenceMode == PersistenceMode.SNAPSHOT && durabilityLevel != DurabilityLevel.NONE) {
+                checkpointDue = !changedTasks.isEmpty();
+            } else if (persistenceMode == PersistenceMode.MAPPED && durabilityLevel != DurabilityLevel.NONE) {
+                // Changes land in the table itself; there is no journal to compact.
+                checkpointDue = false;
+            } else {
+                boolean checkpointInFlight = checkpointScheduled || !queuedCheckpoints.isEmpty();
+                boolean full = changesSinceCheckpoint >= Math.max(MIN_COMPACTION_RECORDS, liveTaskCount);
+                boolean stale = changesSinceCheckpoint > 0
+                        && System.currentTimeMillis() - lastCheckpointAt >= CHECKPOINT_INTERVAL_MS;
+                checkpointDue = !checkpointInFlight && (full || stale);
+            }
+            if (checkpointDue) {
+                queueCheckpointLocked(checkpointView.get());
+            }
+
+            if (durabilityLevel != DurabilityLevel.SYNC_PER_TRANSITION) {
+                scheduleCommitLocked(groupCommitWindowMs);
+                return;
+            }
+        }
+
+        PendingCheckpoint checkpoint = commitQueuedChanges();
+        if (checkpoint != null) {
+            if (persistenceMode == PersistenceMode.SNAPSHOT) {
+                writeCheckpoint(checkpoint);
+            } else {
+                handOffCheckpoint(checkpoint);
+            }
+        }
+    }
+
+    /**
+     * With {@link DurabilityLevel#NONE} nothing reaches disk between checkpoints, so shutdown
+     * requests one for any changes not yet covered.
+     */
+    public synchronized void checkpointUnsavedChanges(Supplier<List<ScheduledTask>> checkpointView) {
+        if (durabilityLevel == DurabilityLevel.NONE && changesSinceCheckpoint > 0) {
+            queueCheckpointLocked(checkpointView.get());
+            scheduleCommitLocked(0L);
+        }
+    }
+
+    /**
+     * Writes a full snapshot synchronously on the calling thread.
+     */
+    public void saveTasks(Collection<ScheduledTask> tasks) {
+        List<ScheduledTask> snapshot = new ArrayList<>();
+        for (ScheduledTask task : tasks) {
+            snapshot.add(task.copy());
+        }
+
+        synchronized (this) {
+            queueCheckpointLocked(snapshot);
+        }
+        PendingCheckpoint checkpoint = commitQueuedChanges();
+        if (checkpoint != null) {
+            writeCheckpoint(checkpoint);
+        }
+    }
+
+    /**
+     * Blocks until every change and checkpoint submitted so far has been written.
+     */
+    public void flush() {
+        commitInBackground();
+        if (syncPolicy != SyncPolicy.NO_SYNC) {
+            syncPeriodically();
+        }
+        awaitPersistenceThread();
+    }
+
+    private void awaitPersistenceThread() {
+        try {
+            persistenceExecutor.submit(() -> { }).get();
+        } catch (InterruptedException interruptedException) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException exception) {
+            System.err.println("Failed to flush scheduler state: " + exception.getMessage());
+        }
+    }
+
+    // Only the capture happens on the caller's thread; serialization and I/O happen when the
+    // commit queue is drained.
+    private void queueCheckpointLocked(List<ScheduledTask> view) {
+        queuedCheckpoints.add(new QueuedCheckpoint(queuedChanges.size(), ++checkpointSequence, view));
+        changesSinceCheckpoint = 0;
+        lastCheckpointAt = System.currentTimeMillis();
+    }
+
+    private void scheduleCommitLocked(long delayMs) {
+        if (commitScheduled || (queuedChanges.isEmpty() && queuedCheckpoints.isEmpty())) {
+            return;
+        }
+        commitScheduled = true;
+        persistenceExecutor.schedule(this::commitInBackground, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void commitInBackground() {
+        PendingCheckpoint checkpoint = commitQueuedChanges();
+        if (checkpoint != null) {
+            handOffCheckpoint(checkpoint);
+        }
+    }
+
+    /**
+     * Drains the commit queue in order as one group commit. Returns the newest checkpoint it
+     * sealed the journal for, or {@code null}.
+     */
+    private PendingCheckpoint commitQueuedChanges() {
+        synchronized (journalWriteLock) {
+            List<ScheduledTask> changes;
+            List<QueuedCheckpoint> checkpoints;
+            synchronized (this) {
+                changes = queuedChanges;
+                checkpoints = queuedCheckpoints;
+                queuedChanges = new ArrayList<>();
+                queuedCheckpoints = new ArrayList<>();
+                commitScheduled = false;
+            }
+
+            if (persistenceMode == PersistenceMode.MAPPED) {
+                int applied = 0;
+                for (QueuedCheckpoint checkpoint : checkpoints) {
+                    applyToTaskTable(changes.subList(applied, checkpoint.changeIndex()), false);
+                    applyToTaskTable(checkpoint.tasks(), true);
+                    applied = checkpoint.changeIndex();
+                }
+                applyToTaskTable(changes.subList(applied, changes.size()), false);
+                return null;
+            }
+
+            PendingCheckpoint latest = null;
+            int written = 0;
+            for (QueuedCheckpoint checkpoint : checkpoints) {
+                appendToJournal(changes.subList(written, checkpoint.changeIndex()));
+                written = checkpoint.changeIndex();
+                latest = new PendingCheckpoint(checkpoint.sequence(), checkpoint.tasks(), sealActiveJournal());
+            }
+            appendToJournal(changes.subList(written, changes.size()));
+            return latest;
+        }
     }
 
-    public synchronized void saveTasks(Collection<ScheduledTask> tasks) {
+    // Active tasks are updated in place; finished ones move to history and free their slot.
+    // A complete view also drops tasks the caller no longer has.
+    private void applyToTaskTable(List<ScheduledTask> tasks, boolean completeView) {
+        if (tasks.isEmpty() && !completeView) {
+            return;
+        }
         try {
-            Files.createDirectories(dataDirectory);
-            Path tempFile = stateFile.resolveSibling("tasks.tmp");
-            List<ScheduledTask> snapshot = new ArrayList<>();
+            openTaskTable();
+            List<ScheduledTask> newHistoryTasks = new ArrayList<>();
+            Set<String> deferredTaskIds;
+            synchronized (checkpointWriteLock) {
+                boolean historyIndexReady = isHistoryIndexReady();
+                for (ScheduledTask task : tasks) {
+                    if (!task.isTerminal()) {
+                        continue;
+                    }
+                    if (!historyIndexReady) {
+                        deferHistoryLocked(task);
+                    } else if (!historySegmentsByTaskId.containsKey(task.getId())) {
+                        deferredHistoryTasks.remove(task.getId());
+                        newHistoryTasks.add(task);
+                    }
+                }
+                appendHistoryLocked(newHistoryTasks);
+                deferredTaskIds = new HashSet<>(deferredHistoryTasks.keySet());
+            }
+
+            Set<String> staleTaskIds = completeView ? taskTable.taskIds() : new HashSet<>();
+            staleTaskIds.removeAll(deferredTaskIds);
             for (ScheduledTask task : tasks) {
-                snapshot.add(task.copy());
+                staleTaskIds.remove(task.getId());
+                if (task.isTerminal() && !deferredTaskIds.contains(task.getId())) {
+                    taskTable.remove(task.getId());
+                } else {
+                    taskTable.put(task);
+                }
+            }
+            for (String taskId : staleTaskIds) {
+                taskTable.remove(taskId);
             }
-            try (ObjectOutputStream out = new ObjectOutputStream(Files.newOutputStream(tempFile))) {
-                out.writeObject(snapshot);
+            taskTable.compactIfNeeded();
+
+            if (syncPolicy == SyncPolicy.SYNC_ON_COMMIT) {
+                forceTaskTable();
+            } else {
+                taskTableUnsynced = true;
             }
+        } catch (IOException exception) {
+            System.err.println("Failed to update scheduler task table: " + exception.getMessage());
+        }
+    }
+
+    private List<ScheduledTask> openTaskTable() throws IOException {
+        if (taskTableOpen) {
+            return List.of();
+        }
+        List<ScheduledTask> tasks = taskTable.open();
+        taskTableOpen = true;
+        return tasks;
+    }
+
+    private void forceTaskTable() throws IOException {
+        long startedAt = System.nanoTime();
+        taskTable.force();
+        recordSync(System.nanoTime() - startedAt);
+        taskTableUnsynced = false;
+    }
+
+    // A checkpoint that arrives while one is waiting replaces it.
+    private synchronized void handOffCheckpoint(PendingCheckpoint checkpoint) {
+        if (pendingCheckpoint == null || pendingCheckpoint.sequence() < checkpoint.sequence()) {
+            pendingCheckpoint = checkpoint;
+        }
+        if (!checkpointScheduled) {
+            checkpointScheduled = true;
+            persistenceExecutor.execute(this::writePendingCheckpoints);
+        }
+    }
+
+    private void appendToJournal(List<ScheduledTask> changedTasks) {
+        if (changedTasks.isEmpty()) {
+            return;
+        }
+        try {
+            List<byte[]> records = new ArrayList<>(changedTasks.size());
+            for (ScheduledTask task : changedTasks) {
+                records.add(TaskCodec.encode(List.of(task)));
+            }
+            appendFrames(journalFile, records, syncPolicy == SyncPolicy.SYNC_ON_COMMIT);
+            journalRecords += changedTasks.size();
+            journalUnsynced = syncPolicy != SyncPolicy.SYNC_ON_COMMIT;
+        } catch (IOException exception) {
+            System.err.println("Failed to append to scheduler journal: " + exception.getMessage());
+        }
+    }
+
+    // Every frame is {length, CRC32, payload}, so a torn tail is detectable on replay.
+    private void appendFrames(Path file, List<byte[]> payloads, boolean force) throws IOException {
+        Files.createDirectories(dataDirectory);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            CRC32 checksum = new CRC32();
+            for (byte[] payload : payloads) {
+                checksum.reset();
+                checksum.update(payload);
+                out.writeInt(payload.length);
+                out.writeInt((int) checksum.getValue());
+                out.write(payload);
+            }
+            out.flush();
+            if (force) {
+                force(channel);
+            }
+        }
+    }
+
+    private void writeFile(Path file, byte[] data, boolean force) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            if (force) {
+                force(channel);
+            }
+        }
+    }
+
+    private void force(FileChannel channel) throws IOException {
+        long startedAt = System.nanoTime();
+        channel.force(false);
+        recordSync(System.nanoTime() - startedAt);
+    }
+
+    private void recordSync(long elapsedNanos) {
+        synchronized (syncStatisticsLock) {
+            syncCount++;
+            totalSyncNanos += elapsedNanos;
+            maxSyncNanos = Math.max(maxSyncNanos, elapsedNanos);
+        }
+    }
+
+    // Makes renames and newly created files in the data directory durable. Not every platform
+    // can open a directory, so failures are ignored.
+    private void syncDataDirectory() {
+        try (FileChannel channel = FileChannel.open(dataDirectory, StandardOpenOption.READ)) {
+            force(channel);
+        } catch (IOException ignored) {
+            // Best effort only.
+        }
+    }
+
+    // Periodic policy: forces journal appends and table updates made since the last pass.
+    private void syncPeriodically() {
+        synchronized (journalWriteLock) {
+            syncJournal();
+            if (taskTableUnsynced) {
+                try {
+                    forceTaskTable();
+                } catch (IOException exception) {
+                    System.err.println("Failed to sync scheduler task table: " + exception.getMessage());
+                }
+            }
+        }
+    }
+
+    private void syncJournal() {
+        if (!journalUnsynced) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(journalFile, StandardOpenOption.WRITE)) {
+            force(channel);
+            journalUnsynced = false;
+        } catch (IOException exception) {
+            System.err.println("Failed to sync scheduler journal: " + exception.getMessage());
+        }
+    }
+
+    // Records appended after a capture must outlive its checkpoint, so the active journal is
+    // sealed under a numbered name and new appends start a fresh file.
+    private long sealActiveJournal() {
+        if (journalRecords == 0 || !Files.exists(journalFile)) {
+            return lastSealedSegment;
+        }
+        if (syncPolicy != SyncPolicy.NO_SYNC) {
+            syncJournal();
+        }
+        try {
+            Path sealedFile = journalFile.resolveSibling(SEALED_JOURNAL_PREFIX + (lastSealedSegment + 1));
+            Files.move(journalFile, sealedFile);
+            lastSealedSegment++;
+            journalRecords = 0;
+            journalUnsynced = false;
+        } catch (IOException exception) {
+            System.err.println("Failed to seal scheduler journal: " + exception.getMessage());
+        }
+        return lastSealedSegment;
+    }
+
+    private void writePendingCheckpoints() {
+        while (true) {
+            PendingCheckpoint checkpoint;
+            synchronized (this) {
+                checkpoint = pendingCheckpoint;
+                pendingCheckpoint = null;
+                if (checkpoint == null) {
+                    checkpointScheduled = false;
+                    return;
+                }
+            }
+            writeCheckpoint(checkpoint);
+        }
+    }
+
+    private void writeCheckpoint(PendingCheckpoint checkpoint) {
+        synchronized (checkpointWriteLock) {
+            if (checkpoint.sequence() <= writtenCheckpointSequence) {
+                return;
+            }
+            // Until the history index is loaded, finished tasks are kept in the snapshot
+            // rather than waiting for it here, which may be the engine thread.
+            boolean historyIndexReady = isHistoryIndexReady();
+            List<ScheduledTask> activeTasks = new ArrayList<>();
+            List<ScheduledTask> newHistoryTasks = new ArrayList<>();
+            for (ScheduledTask task : checkpoint.tasks()) {
+                if (!task.isTerminal()) {
+                    activeTasks.add(task);
+                } else if (!historyIndexReady) {
+                    activeTasks.add(task);
+                    deferHistoryLocked(task);
+                } else if (!historySegmentsByTaskId.containsKey(task.getId())) {
+                    deferredHistoryTasks.remove(task.getId());
+                    newHistoryTasks.add(task);
+                }
+            }
+
             try {
-                Files.move(tempFile, stateFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                // History goes first: until tasks.dat is replaced, the old one and the journal
+                // still cover these tasks.
+                appendHistoryLocked(newHistoryTasks);
+
+                // Unless syncing is off, the new snapshot must be on disk before the rename
+                // makes it current and the sealed segments it replaces are deleted.
+                boolean force = syncPolicy != SyncPolicy.NO_SYNC;
+                Path tempFile = stateFile.resolveSibling("tasks.tmp");
+                writeFile(tempFile, TaskCodec.encode(activeTasks), force);
+                try {
+                    Files.move(tempFile, stateFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (IOException atomicMoveException) {
+                    Files.move(tempFile, stateFile, StandardCopyOption.REPLACE_EXISTING);
+                }
+                if (force) {
+                    syncDataDirectory();
+                }
+                writtenCheckpointSequence = checkpoint.sequence();
+                Files.deleteIfExists(legacyStateFile);
+                // The snapshot now holds everything the sealed segments did.
+                for (long segment : listNumberedFiles(SEALED_JOURNAL_PREFIX, "")) {
+                    if (segment <= checkpoint.sealedThroughSegment()) {
+                        Files.deleteIfExists(sealedSegmentFile(segment));
+                    }
+                }
+            } catch (IOException exception) {
+                System.err.println("Failed to persist scheduler state: " + exception.getMessage());
+            }
+        }
+    }
+
+    private void appendHistoryLocked(List<ScheduledTask> tasks) throws IOException {
+        int written = 0;
+        while (written < tasks.size()) {
+            if (openHistorySegmentTasks >= MAX_HISTORY_SEGMENT_TASKS) {
+                openHistorySegment++;
+                openHistorySegmentTasks = 0;
+            }
+            int blockSize = Math.min(
+                    Math.min(MAX_HISTORY_BLOCK_TASKS, MAX_HISTORY_SEGMENT_TASKS - openHistorySegmentTasks),
+                    tasks.size() - written
+            );
+            List<ScheduledTask> block = tasks.subList(written, written + blockSize);
+            appendFrames(historySegmentFile(openHistorySegment), List.of(TaskCodec.encode(block)),
+                    syncPolicy != SyncPolicy.NO_SYNC);
+            for (ScheduledTask task : block) {
+                historySegmentsByTaskId.put(task.getId(), openHistorySegment);
+            }
+            openHistorySegmentTasks += blockSize;
+            written += blockSize;
+        }
+    }
+
+    private void deferHistoryLocked(ScheduledTask task) {
+        deferredHistoryTasks.put(task.getId(), task);
+        if (!historyDrainScheduled) {
+            historyDrainScheduled = true;
+            loadHistoryAsync().thenRun(() -> persistenceExecutor.execute(this::drainDeferredHistory));
+        }
+    }
+
+    // Runs on the persistence thread once the history index is loaded.
+    private void drainDeferredHistory() {
+        synchronized (journalWriteLock) {
+            synchronized (checkpointWriteLock) {
+                historyDrainScheduled = false;
+                List<ScheduledTask> newHistoryTasks = new ArrayList<>();
+                for (ScheduledTask task : deferredHistoryTasks.values()) {
+                    if (!historySegmentsByTaskId.containsKey(task.getId())) {
+                        newHistoryTasks.add(task);
+                    }
+                }
+                try {
+                    appendHistoryLocked(newHistoryTasks);
+                    if (taskTableOpen) {
+                        for (String taskId : deferredHistoryTasks.keySet()) {
+                            taskTable.remove(taskId);
+                        }
+                        taskTable.compactIfNeeded();
+                        if (syncPolicy == SyncPolicy.SYNC_ON_COMMIT) {
+                            forceTaskTable();
+                        } else {
+                            taskTableUnsynced = true;
+                        }
+                    }
+                    // A snapshot drops them at its next checkpoint, now that history has them.
+                    deferredHistoryTasks.clear();
+                } catch (IOException exception) {
+                    System.err.println("Failed to move finished tasks into history: " + exception.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Loads every task: {@link #loadActiveTasks()} merged with {@link #loadHistoryAsync()}.
+     */
+    public List<ScheduledTask> loadTasks() {
+        Map<String, ScheduledTask> tasksById = new LinkedHashMap<>();
+        for (ScheduledTask task : loadActiveTasks()) {
+            tasksById.put(task.getId(), task);
+        }
+        for (ScheduledTask task : loadHistoryAsync().join()) {
+            mergeTask(tasksById, task);
+        }
+        return new ArrayList<>(tasksById.values());
+    }
+
+    /**
+     * Loads the tasks that matter for dispatching: the active snapshot or task table, plus
+     * journal records written after it, sealed segments first. History segments are left to
+     * {@link #loadHistoryAsync()}, so startup time does not grow with history. Recently
+     * finished tasks still in the journal are included.
+     */
+    public List<ScheduledTask> loadActiveTasks() {
+        Map<String, ScheduledTask> tasksById = new LinkedHashMap<>();
+        List<Long> sealedSegments = listNumberedFiles(SEALED_JOURNAL_PREFIX, "");
+        boolean hasSnapshotOrJournal = Files.exists(stateFile) || Files.exists(legacyStateFile)
+                || Files.exists(journalFile) || !sealedSegments.isEmpty();
+        for (ScheduledTask task : loadSnapshot()) {
+            mergeTask(tasksById, task);
+        }
+
+        int replayedRecords;
+        boolean leaveTaskTable = false;
+        synchronized (journalWriteLock) {
+            for (long segment : sealedSegments) {
+                readFrames(sealedSegmentFile(segment), task -> mergeTask(tasksById, task));
+                lastSealedSegment = Math.max(lastSealedSegment, segment);
+            }
+            journalRecords = readFrames(journalFile, task -> mergeTask(tasksById, task));
+            replayedRecords = journalRecords;
+
+            if (persistenceMode == PersistenceMode.MAPPED || MappedTaskTable.exists(dataDirectory)) {
+                try {
+                    for (ScheduledTask task : openTaskTable()) {
+                        mergeTask(tasksById, task);
+                    }
+                    if (persistenceMode == PersistenceMode.MAPPED && hasSnapshotOrJournal) {
+                        migrateIntoTaskTable(tasksById.values());
+                        replayedRecords = 0;
+                    }
+                    leaveTaskTable = persistenceMode != PersistenceMode.MAPPED;
+                } catch (IOException exception) {
+                    System.err.println("Failed to load scheduler task table: " + exception.getMessage());
+                }
+            }
+        }
+        synchronized (this) {
+            changesSinceCheckpoint = replayedRecords;
+        }
+        if (leaveTaskTable) {
+            migrateOutOfTaskTable(tasksById.values());
+        }
+        return new ArrayList<>(tasksById.values());
+    }
+
+    // Switching to mapped mode: the table takes over from the snapshot and journal.
+    private void migrateIntoTaskTable(Collection<ScheduledTask> tasks) throws IOException {
+        List<ScheduledTask> copies = new ArrayList<>(tasks.size());
+        for (ScheduledTask task : tasks) {
+            copies.add(task.copy());
+        }
+        applyToTaskTable(copies, true);
+        if (syncPolicy != SyncPolicy.NO_SYNC) {
+            forceTaskTable();
+        }
+        Files.deleteIfExists(stateFile);
+        Files.deleteIfExists(legacyStateFile);
+        Files.deleteIfExists(journalFile);
+        for (long segment : listNumberedFiles(SEALED_JOURNAL_PREFIX, "")) {
+            Files.deleteIfExists(sealedSegmentFile(segment));
+        }
+        journalRecords = 0;
+    }
+
+    // Switching away from mapped mode: a snapshot takes over from the table.
+    private void migrateOutOfTaskTable(Collection<ScheduledTask> tasks) {
+        saveTasks(tasks);
+        if (!Files.exists(stateFile)) {
+            return;
+        }
+        synchronized (journalWriteLock) {
+            try {
+                taskTable.close();
+                taskTableOpen = false;
+                MappedTaskTable.delete(dataDirectory);
+            } catch (IOException exception) {
+                System.err.println("Failed to remove scheduler task table: " + exception.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Reads the history segments on a background thread, once. Finished tasks written before
+     * it completes stay with the active tasks until then, since appending them to history
+     * needs the ids it collects.
+     */
+    public synchronized CompletableFuture<List<ScheduledTask>> loadHistoryAsync() {
+        if (historyLoad == null) {
+            historyLoad = CompletableFuture.supplyAsync(this::loadHistory, runnable -> {
+                Thread thread = new Thread(runnable, "scheduler-history-loader");
+                thread.setDaemon(true);
+                thread.start();
+            });
+        }
+        return historyLoad;
+    }
+
+    // Read without checkpointWriteLock, so checkpoints are not held up; nothing appends to
+    // history until the index is published at the end.
+    private List<ScheduledTask> loadHistory() {
+        Map<String, ScheduledTask> tasksById = new LinkedHashMap<>();
+        Map<String, Long> segmentsByTaskId = new HashMap<>();
+        long lastSegment = -1L;
+        int lastSegmentTasks = 0;
+        for (long segment : listNumberedFiles(HISTORY_SEGMENT_PREFIX, HISTORY_SEGMENT_SUFFIX)) {
+            int[] segmentTasks = {0};
+            readFrames(historySegmentFile(segment), task -> {
+                segmentsByTaskId.put(task.getId(), segment);
+                tasksById.put(task.getId(), task);
+                segmentTasks[0]++;
+            });
+            lastSegment = segment;
+            lastSegmentTasks = segmentTasks[0];
+        }
+        synchronized (checkpointWriteLock) {
+            historySegmentsByTaskId.clear();
+            historySegmentsByTaskId.putAll(segmentsByTaskId);
+            if (lastSegment >= 0L) {
+                openHistorySegment = lastSegment;
+                openHistorySegmentTasks = lastSegmentTasks;
+            }
+        }
+        return new ArrayList<>(tasksById.values());
+    }
+
+    private boolean isHistoryIndexReady() {
+        return loadHistoryAsync().isDone();
+    }
+
+    // Only for the persistence thread, never a caller of saveTaskChanges().
+    private void awaitHistoryIndex() {
+        loadHistoryAsync().join();
+    }
+
+    /**
+     * Moves finished tasks the engine has let go of into the archive, then drops them from
+     * the history segments so the next start does not load them again. Written on the
+     * persistence thread; {@code tasks} must be private copies.
+     */
+    public void archiveTasks(List<ScheduledTask> tasks) {
+        if (tasks.isEmpty()) {
+            return;
+        }
+        synchronized (this) {
+            // Their journal records are now dead weight, and would bring them back on restart.
+            changesSinceCheckpoint += tasks.size();
+        }
+        persistenceExecutor.execute(() -> writeArchive(tasks));
+    }
+
+    /**
+     * Returns the archived tasks {@code query} and {@code filter} accept, including any still
+     * being archived. Archive segments and blocks outside the query are not read.
+     */
+    public List<ScheduledTask> queryArchive(ArchiveQuery query, Predicate<? super ScheduledTask> filter) {
+        awaitPersistenceThread();
+        return taskArchive.query(query, filter);
+    }
+
+    private void writeArchive(List<ScheduledTask> tasks) {
+        // Changes and checkpoints captured before the engine let go of these tasks are written
+        // first; afterwards they would put the tasks back into history.
+        commitInBackground();
+        writePendingCheckpoints();
+        awaitHistoryIndex();
+        synchronized (checkpointWriteLock) {
+            try {
+                // Archive first: until their segments are rewritten, those still cover the tasks.
+                taskArchive.append(tasks, syncPolicy != SyncPolicy.NO_SYNC);
+                Map<Long, Set<String>> archivedTaskIdsBySegment = new HashMap<>();
+                for (ScheduledTask task : tasks) {
+                    Long segment = historySegmentsByTaskId.remove(task.getId());
+                    if (segment != null) {
+                        archivedTaskIdsBySegment.computeIfAbsent(segment, ignored -> new HashSet<>()).add(task.getId());
+                    }
+                }
+                for (Map.Entry<Long, Set<String>> entry : archivedTaskIdsBySegment.entrySet()) {
+                    rewriteHistorySegmentLocked(entry.getKey(), entry.getValue());
+                }
+            } catch (IOException exception) {
+                System.err.println("Failed to archive scheduler history: " + exception.getMessage());
+            }
+        }
+    }
+
+    private void rewriteHistorySegmentLocked(long segment, Set<String> removedTaskIds) throws IOException {
+        Path segmentFile = historySegmentFile(segment);
+        List<ScheduledTask> keptTasks = new ArrayList<>();
+        readFrames(segmentFile, task -> {
+            if (!removedTaskIds.contains(task.getId())) {
+                keptTasks.add(task);
+            }
+        });
+
+        if (keptTasks.isEmpty()) {
+            Files.deleteIfExists(segmentFile);
+        } else {
+            List<byte[]> blocks = new ArrayList<>();
+            for (int start = 0; start < keptTasks.size(); start += MAX_HISTORY_BLOCK_TASKS) {
+                blocks.add(TaskCodec.encode(keptTasks.subList(start, Math.min(keptTasks.size(), start + MAX_HISTORY_BLOCK_TASKS))));
+            }
+            Path tempFile = segmentFile.resolveSibling(segmentFile.getFileName() + ".tmp");
+            Files.deleteIfExists(tempFile);
+            appendFrames(tempFile, blocks, syncPolicy != SyncPolicy.NO_SYNC);
+            try {
+                Files.move(tempFile, segmentFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
             } catch (IOException atomicMoveException) {
-                Files.move(tempFile, stateFile, StandardCopyOption.REPLACE_EXISTING);
+                Files.move(tempFile, segmentFile, StandardCopyOption.REPLACE_EXISTING);
             }
-        } catch (IOException exception) {
-            System.err.println("Failed to persist scheduler state: " + exception.getMessage());
         }
+        if (segment == openHistorySegment) {
+            openHistorySegmentTasks = keptTasks.size();
+        }
+    }
+
+    // Terminal states are final, so a stale non-terminal copy never replaces one.
+    private static void mergeTask(Map<String, ScheduledTask> tasksById, ScheduledTask task) {
+        ScheduledTask known = tasksById.get(task.getId());
+        if (known != null && known.isTerminal() && !task.isTerminal()) {
+            return;
+        }
+        tasksById.put(task.getId(), task);
     }
 
+    // Falls back to the Java-serialized tasks.ser written by earlier versions.
     @SuppressWarnings("unchecked")
-    public synchronized List<ScheduledTask> loadTasks() {
-        if (!Files.exists(stateFile)) {
+    private List<ScheduledTask> loadSnapshot() {
+        Path snapshotFile = Files.exists(stateFile) ? stateFile : legacyStateFile;
+        if (!Files.exists(snapshotFile)) {
             return new ArrayList<>();
         }
 
-        try (ObjectInputStream in = new ObjectInputStream(Files.newInputStream(stateFile))) {
-            Object state = in.readObject();
-            if (state instanceof List<?>) {
-                return (List<ScheduledTask>) state;
+        try {
+            byte[] data = Files.readAllBytes(snapshotFile);
+            if (TaskCodec.isTaskBlock(data)) {
+                return TaskCodec.decode(data);
+            }
+            try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(data))) {
+                Object state = in.readObject();
+                if (state instanceof List<?>) {
+                    return (List<ScheduledTask>) state;
+                }
             }
         } catch (Exception exception) {
             System.err.println("Failed to load scheduler state: " + exception.getMessage());
@@ -64,19 +926,97 @@ public class SchedulerStateStore {
         return new ArrayList<>();
     }
 
+    private int readFrames(Path file, Consumer<ScheduledTask> sink) {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+
+        int replayedRecords = 0;
+        long validLength = 0L;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            CRC32 checksum = new CRC32();
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException endOfJournal) {
+                    break;
+                }
+                int expectedChecksum = in.readInt();
+                if (length <= 0 || length > MAX_FRAME_BYTES) {
+                    throw new IOException("invalid record length " + length);
+                }
+                byte[] record = new byte[length];
+                in.readFully(record);
+                checksum.reset();
+                checksum.update(record);
+                if ((int) checksum.getValue() != expectedChecksum) {
+                    throw new IOException("checksum mismatch");
+                }
+
+                for (ScheduledTask task : deserializeTasks(record)) {
+                    sink.accept(task);
+                }
+                replayedRecords++;
+                validLength += 8L + length;
+            }
+        } catch (Exception exception) {
+            // A crash mid-append leaves a torn tail; keep the intact prefix and cut the rest
+            // so later appends are not stranded behind it.
+            System.err.println("Scheduler file " + file.getFileName() + " ends with a damaged record ("
+                    + exception.getMessage() + "); read " + replayedRecords + " record(s).");
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.truncate(validLength);
+            } catch (IOException truncateException) {
+                System.err.println("Failed to truncate " + file.getFileName() + ": " + truncateException.getMessage());
+            }
+        }
+        return replayedRecords;
+    }
+
+    private List<Long> listNumberedFiles(String prefix, String suffix) {
+        List<Long> numbers = new ArrayList<>();
+        if (!Files.isDirectory(dataDirectory)) {
+            return numbers;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dataDirectory, prefix + "*" + suffix)) {
+            for (Path file : files) {
+                String fileName = file.getFileName().toString();
+                try {
+                    numbers.add(Long.parseLong(fileName.substring(prefix.length(), fileName.length() - suffix.length())));
+                } catch (NumberFormatException ignored) {
+                    // Not one of ours.
+                }
+            }
+        } catch (IOException exception) {
+            System.err.println("Failed to list " + prefix + " files: " + exception.getMessage());
+        }
+        Collections.sort(numbers);
+        return numbers;
+    }
+
+    private Path sealedSegmentFile(long segment) {
+        return journalFile.resolveSibling(SEALED_JOURNAL_PREFIX + segment);
+    }
+
+    private Path historySegmentFile(long segment) {
+        return dataDirectory.resolve(HISTORY_SEGMENT_PREFIX + segment + HISTORY_SEGMENT_SUFFIX);
+    }
+
+    // Journal records written before the binary codec are single Java-serialized tasks.
+    private static List<ScheduledTask> deserializeTasks(byte[] record) throws IOException, ClassNotFoundException {
+        if (TaskCodec.isTaskBlock(record)) {
+            return TaskCodec.decode(record);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(record))) {
+            return List.of((ScheduledTask) in.readObject());
+        }
+    }
+
     public synchronized void savePolicySettings(SchedulerPolicySettings settings) {
         SchedulerPolicySettings safeSettings = settings == null ? SchedulerPolicySettings.defaults() : settings;
         try {
-            Files.createDirectories(dataDirectory);
-            Path tempFile = settingsFile.resolveSibling("scheduler-settings.tmp");
-            try (ObjectOutputStream out = new ObjectOutputStream(Files.newOutputStream(tempFile))) {
-                out.writeObject(safeSettings);
-            }
-            try {
-                Files.move(tempFile, settingsFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
-            } catch (IOException atomicMoveException) {
-                Files.move(tempFile, settingsFile, StandardCopyOption.REPLACE_EXISTING);
-            }
+            writeSettingsFile(settingsFile, safeSettings);
         } catch (IOException exception) {
             System.err.println("Failed to persist scheduler policy settings: " + exception.getMessage());
         }
@@ -99,15 +1039,90 @@ public class SchedulerStateStore {
         return SchedulerPolicySettings.defaults();
     }
 
+    public synchronized void saveLogSettings(LogSettings settings) {
+        LogSettings safeSettings = settings == null ? LogSettings.defaults() : settings;
+        try {
+            writeSettingsFile(logSettingsFile, safeSettings);
+        } catch (IOException exception) {
+            System.err.println("Failed to persist log settings: " + exception.getMessage());
+        }
+    }
+
+    public synchronized LogSettings loadLogSettings() {
+        if (!Files.exists(logSettingsFile)) {
+            return LogSettings.defaults();
+        }
+
+        try (ObjectInputStream in = new ObjectInputStream(Files.newInputStream(logSettingsFile))) {
+            Object state = in.readObject();
+            if (state instanceof LogSettings settings) {
+                return settings;
+            }
+        } catch (Exception exception) {
+            System.err.println("Failed to load log settings: " + exception.getMessage());
+        }
+
+        return LogSettings.defaults();
+    }
+
+    private void writeSettingsFile(Path targetFile, Serializable settings) throws IOException {
+        Files.createDirectories(dataDirectory);
+        Path tempFile = targetFile.resolveSibling(targetFile.getFileName() + ".tmp");
+        try (ObjectOutputStream out = new ObjectOutputStream(Files.newOutputStream(tempFile))) {
+            out.writeObject(settings);
+        }
+        try {
+            Files.move(tempFile, targetFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException atomicMoveException) {
+            Files.move(tempFile, targetFile, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
     public Path getDataDirectory() {
         return dataDirectory;
     }
 
     public Path getStateFile() {
-        return stateFile;
+        return persistenceMode == PersistenceMode.MAPPED ? taskTable.getTableFile() : stateFile;
+    }
+
+    public Path getJournalFile() {
+        return journalFile;
+    }
+
+    public Path getArchiveDirectory() {
+        return taskArchive.getArchiveDirectory();
+    }
+
+    public PersistenceMode getPersistenceMode() {
+        return persistenceMode;
+    }
+
+    public DurabilityLevel getDurabilityLevel() {
+        return durabilityLevel;
+    }
+
+    public long getGroupCommitWindowMs() {
+        return groupCommitWindowMs;
+    }
+
+    public SyncStatistics getSyncStatistics() {
+        synchronized (syncStatisticsLock) {
+            return new SyncStatistics(syncPolicy, syncCount, totalSyncNanos, maxSyncNanos);
+        }
+    }
+
+    private record QueuedCheckpoint(int changeIndex, long sequence, List<ScheduledTask> tasks) {
+    }
+
+    private record PendingCheckpoint(long sequence, List<ScheduledTask> tasks, long sealedThroughSegment) {
     }
 
     public Path getSettingsFile() {
         return settingsFile;
     }
+
+    public Path getLogSettingsFile() {
+        return logSettingsFile;
+    }
 }
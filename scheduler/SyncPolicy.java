@@ -0,0 +1,36 @@
+package scheduler;
+
+/**
+ * When the state store forces written data to the storage device.
+ */
+public enum SyncPolicy {
+    /** Leave flushing to the operating system. */
+    NO_SYNC("No sync"),
+    /** Force checkpoints as they are written and the journal on a fixed interval. */
+    PERIODIC("Periodic"),
+    /** Force every journal commit, history append and checkpoint before it counts as written. */
+    SYNC_ON_COMMIT("Sync on commit");
+
+    private final String displayName;
+
+    SyncPolicy(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public static SyncPolicy fromProperty(String value) {
+        if (value != null) {
+            String normalized = value.trim().replace('-', '_');
+            for (SyncPolicy policy : values()) {
+                if (policy.name().equalsIgnoreCase(normalized)) {
+                    return policy;
+                }
+            }
+        }
+        return PERIODIC;
+    }
+
+    @Override
+    public String toString() {
+        return displayName;
+    }
+}
@@ -0,0 +1,19 @@
+package scheduler;
+
+/**
+ * Counters for the state store's {@code fsync} calls.
+ */
+public record SyncStatistics(
+        SyncPolicy syncPolicy,
+        long syncCount,
+        long totalSyncNanos,
+        long maxSyncNanos
+) {
+    public double averageSyncMs() {
+        return syncCount == 0L ? 0.0 : totalSyncNanos / (double) syncCount / 1_000_000.0;
+    }
+
+    public double maxSyncMs() {
+        return maxSyncNanos / 1_000_000.0;
+    }
+}
@@ -0,0 +1,27 @@
+package scheduler;
+
+/**
+ * Wall-clock time; the engine really sleeps until its next event.
+ */
+public final class SystemSchedulerClock implements SchedulerClock {
+    static final SystemSchedulerClock INSTANCE = new SystemSchedulerClock();
+
+    // Re-checks state now and then even when nothing is due, in case the wall clock jumps.
+    private static final long MAX_IDLE_WAIT_MS = 60_000L;
+
+    private SystemSchedulerClock() {
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    @Override
+    public void awaitUntil(long eventAtEpochMs, WakeUpSignal wakeUpSignal) {
+        long waitMs = Math.min(MAX_IDLE_WAIT_MS, eventAtEpochMs - System.currentTimeMillis());
+        if (waitMs > 0L) {
+            wakeUpSignal.await(waitMs);
+        }
+    }
+}
@@ -0,0 +1,458 @@
+package scheduler;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Cold storage for finished tasks that history retention moved out of memory.
+ *
+ * <p>Tasks are partitioned into one segment per UTC day of their finish time, under
+ * {@code archive/<yyyy-MM-dd>.dat}. A segment is a run of blocks of up to a thousand tasks,
+ * each a {@link TaskCodec} encoding compressed with {@link Deflater} and framed with its length
+ * and CRC32, followed by a footer: the segment's min/max finish time, task counts per category
+ * and outcome, and each block's offset and finish-time range. Queries read only footers until
+ * a segment, then a block, can hold a match. An append rewrites just the footer; a segment
+ * whose footer was cut off by a crash is rebuilt from its intact blocks.</p>
+ *
+ * <p>A task archived twice (a restart can bring one back before its last journal copy is
+ * compacted away) reads back once, as its latest copy.</p>
+ */
+public class TaskArchive {
+    private static final int FOOTER_MAGIC = 0x52544146;
+    private static final int FOOTER_VERSION = 1;
+    private static final int TRAILER_BYTES = 12;
+    private static final int MAX_BLOCK_TASKS = 1_000;
+    private static final int MAX_FRAME_BYTES = 16 * 1024 * 1024;
+    private static final long DAY_MS = 86_400_000L;
+    private static final String ARCHIVE_DIRECTORY_NAME = "archive";
+    private static final String SEGMENT_SUFFIX = ".dat";
+    // Written before archives were partitioned: one file of deflated blocks, no footer.
+    private static final String LEGACY_ARCHIVE_FILE_NAME = "history-archive.dat";
+
+    private final Path archiveDirectory;
+    private final Path legacyArchiveFile;
+    private final Deflater deflater = new Deflater();
+    private final Inflater inflater = new Inflater();
+    private final byte[] codecBuffer = new byte[64 * 1024];
+    private final CRC32 checksum = new CRC32();
+    private TreeMap<Long, SegmentFooter> footersByDay;
+
+    public TaskArchive(Path dataDirectory) {
+        this.archiveDirectory = dataDirectory.resolve(ARCHIVE_DIRECTORY_NAME);
+        this.legacyArchiveFile = dataDirectory.resolve(LEGACY_ARCHIVE_FILE_NAME);
+    }
+
+    public Path getArchiveDirectory() {
+        return archiveDirectory;
+    }
+
+    public synchronized void append(List<ScheduledTask> tasks, boolean force) throws IOException {
+        if (tasks.isEmpty()) {
+            return;
+        }
+        loadFooters();
+        Map<Long, List<ScheduledTask>> tasksByDay = new TreeMap<>();
+        for (ScheduledTask task : tasks) {
+            tasksByDay.computeIfAbsent(dayOf(task.getFinishedAt()), ignored -> new ArrayList<>()).add(task);
+        }
+        for (Map.Entry<Long, List<ScheduledTask>> entry : tasksByDay.entrySet()) {
+            appendToSegment(entry.getKey(), entry.getValue(), force);
+        }
+    }
+
+    /**
+     * Returns the archived tasks {@code query} and {@code filter} accept, oldest segment first.
+     */
+    public synchronized List<ScheduledTask> query(ArchiveQuery query, Predicate<? super ScheduledTask> filter) {
+        ArchiveQuery safeQuery = query == null ? ArchiveQuery.all() : query;
+        Map<String, ScheduledTask> tasksById = new LinkedHashMap<>();
+        try {
+            loadFooters();
+        } catch (IOException exception) {
+            System.err.println("Failed to read task archive: " + exception.getMessage());
+            return new ArrayList<>();
+        }
+
+        for (Map.Entry<Long, SegmentFooter> entry : footersByDay.entrySet()) {
+            SegmentFooter footer = entry.getValue();
+            if (!footer.mayMatch(safeQuery)) {
+                continue;
+            }
+            try (FileChannel channel = FileChannel.open(segmentFile(entry.getKey()), StandardOpenOption.READ)) {
+                for (BlockEntry block : footer.blocks) {
+                    if (!safeQuery.overlaps(block.minFinishedAt(), block.maxFinishedAt())) {
+                        continue;
+                    }
+                    for (ScheduledTask task : readBlock(channel, block)) {
+                        if (safeQuery.matches(task) && (filter == null || filter.test(task))) {
+                            tasksById.put(task.getId(), task);
+                        }
+                    }
+                }
+            } catch (IOException exception) {
+                System.err.println("Failed to read archive segment " + segmentFile(entry.getKey()).getFileName()
+                        + ": " + exception.getMessage());
+            }
+        }
+        return new ArrayList<>(tasksById.values());
+    }
+
+    private void appendToSegment(long day, List<ScheduledTask> tasks, boolean force) throws IOException {
+        Files.createDirectories(archiveDirectory);
+        SegmentFooter footer = footersByDay.getOrDefault(day, new SegmentFooter());
+        try (FileChannel channel = FileChannel.open(segmentFile(day),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // New blocks go where the old footer was; a crash before the new footer is written
+            // leaves a segment that is rebuilt on the next load.
+            channel.truncate(footer.dataLength);
+            channel.position(footer.dataLength);
+            for (int start = 0; start < tasks.size(); start += MAX_BLOCK_TASKS) {
+                List<ScheduledTask> block = tasks.subList(start, Math.min(tasks.size(), start + MAX_BLOCK_TASKS));
+                byte[] payload = compress(TaskCodec.encode(block));
+                ByteBuffer frame = ByteBuffer.allocate(8 + payload.length);
+                frame.putInt(payload.length).putInt(crc(payload)).put(payload).flip();
+                long offset = channel.position();
+                writeFully(channel, frame);
+                footer.addBlock(offset, 8 + payload.length, block);
+            }
+            writeFully(channel, ByteBuffer.wrap(footer.encode()));
+            if (force) {
+                channel.force(false);
+            }
+        }
+        footersByDay.put(day, footer);
+    }
+
+    private void loadFooters() throws IOException {
+        if (footersByDay != null) {
+            return;
+        }
+        footersByDay = new TreeMap<>();
+        if (Files.isDirectory(archiveDirectory)) {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(archiveDirectory, "*" + SEGMENT_SUFFIX)) {
+                for (Path file : files) {
+                    String fileName = file.getFileName().toString();
+                    long day;
+                    try {
+                        day = LocalDate.parse(fileName.substring(0, fileName.length() - SEGMENT_SUFFIX.length())).toEpochDay();
+                    } catch (DateTimeParseException notASegment) {
+                        continue;
+                    }
+                    footersByDay.put(day, readFooter(file));
+                }
+            }
+        }
+        migrateLegacyArchive();
+    }
+
+    private SegmentFooter readFooter(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            if (size >= TRAILER_BYTES) {
+                ByteBuffer trailer = ByteBuffer.allocate(TRAILER_BYTES);
+                readFully(channel, trailer, size - TRAILER_BYTES);
+                int footerLength = trailer.getInt(0);
+                int footerChecksum = trailer.getInt(4);
+                if (trailer.getInt(8) == FOOTER_MAGIC && footerLength > 0 && footerLength <= size - TRAILER_BYTES) {
+                    ByteBuffer body = ByteBuffer.allocate(footerLength);
+                    readFully(channel, body, size - TRAILER_BYTES - footerLength);
+                    if (crc(body.array()) == footerChecksum) {
+                        SegmentFooter footer = SegmentFooter.decode(body.array());
+                        if (footer != null && footer.dataLength == size - TRAILER_BYTES - footerLength) {
+                            return footer;
+                        }
+                    }
+                }
+            }
+            return rebuildFooter(file, channel);
+        }
+    }
+
+    // Keeps the intact prefix of blocks and writes a footer for them.
+    private SegmentFooter rebuildFooter(Path file, FileChannel channel) throws IOException {
+        SegmentFooter footer = new SegmentFooter();
+        long size = channel.size();
+        ByteBuffer header = ByteBuffer.allocate(8);
+        while (footer.dataLength + 8 <= size) {
+            header.clear();
+            readFully(channel, header, footer.dataLength);
+            int length = header.getInt(0);
+            if (length <= 0 || length > MAX_FRAME_BYTES || footer.dataLength + 8 + length > size) {
+                break;
+            }
+            List<ScheduledTask> block;
+            try {
+                block = readBlock(channel, new BlockEntry(footer.dataLength, 8 + length, 0L, 0L));
+            } catch (IOException damagedBlock) {
+                break;
+            }
+            footer.addBlock(footer.dataLength, 8 + length, block);
+        }
+        System.err.println("Rebuilt the footer of archive segment " + file.getFileName() + " ("
+                + footer.taskCount + " task(s) in " + footer.blocks.size() + " block(s)).");
+        channel.truncate(footer.dataLength);
+        channel.position(footer.dataLength);
+        writeFully(channel, ByteBuffer.wrap(footer.encode()));
+        return footer;
+    }
+
+    private void migrateLegacyArchive() throws IOException {
+        if (!Files.exists(legacyArchiveFile)) {
+            return;
+        }
+        List<ScheduledTask> legacyTasks = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(legacyArchiveFile)))) {
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException endOfArchive) {
+                    break;
+                }
+                int expectedChecksum = in.readInt();
+                if (length <= 0 || length > MAX_FRAME_BYTES) {
+                    break;
+                }
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+                if (crc(payload) != expectedChecksum) {
+                    break;
+                }
+                legacyTasks.addAll(TaskCodec.decode(decompress(payload)));
+            }
+        } catch (IOException exception) {
+            System.err.println("Legacy task archive ends with a damaged block: " + exception.getMessage());
+        }
+        append(legacyTasks, true);
+        Files.delete(legacyArchiveFile);
+    }
+
+    private List<ScheduledTask> readBlock(FileChannel channel, BlockEntry block) throws IOException {
+        ByteBuffer frame = ByteBuffer.allocate(block.length());
+        readFully(channel, frame, block.offset());
+        int length = frame.getInt(0);
+        if (length != block.length() - 8) {
+            throw new IOException("block length mismatch at offset " + block.offset());
+        }
+        byte[] payload = new byte[length];
+        frame.get(8, payload);
+        if (crc(payload) != frame.getInt(4)) {
+            throw new IOException("checksum mismatch at offset " + block.offset());
+        }
+        return TaskCodec.decode(decompress(payload));
+    }
+
+    private byte[] compress(byte[] data) {
+        deflater.reset();
+        deflater.setInput(data);
+        deflater.finish();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 4 + 64);
+        while (!deflater.finished()) {
+            out.write(codecBuffer, 0, deflater.deflate(codecBuffer));
+        }
+        return out.toByteArray();
+    }
+
+    private byte[] decompress(byte[] data) throws IOException {
+        inflater.reset();
+        inflater.setInput(data);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length * 4);
+        try {
+            while (!inflater.finished()) {
+                int inflated = inflater.inflate(codecBuffer);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("truncated block");
+                }
+                out.write(codecBuffer, 0, inflated);
+            }
+        } catch (DataFormatException exception) {
+            throw new IOException("corrupt block: " + exception.getMessage(), exception);
+        }
+        return out.toByteArray();
+    }
+
+    private int crc(byte[] data) {
+        checksum.reset();
+        checksum.update(data);
+        return (int) checksum.getValue();
+    }
+
+    private Path segmentFile(long day) {
+        return archiveDirectory.resolve(LocalDate.ofEpochDay(day) + SEGMENT_SUFFIX);
+    }
+
+    private static long dayOf(long epochMs) {
+        return Math.floorDiv(epochMs, DAY_MS);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("segment ends early");
+            }
+        }
+        buffer.flip();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private record BlockEntry(long offset, int length, long minFinishedAt, long maxFinishedAt) {
+    }
+
+    private static final class SegmentFooter {
+        private static final int OUTCOMES = 3;
+
+        private final Map<String, int[]> countsByCategory = new HashMap<>();
+        private final List<BlockEntry> blocks = new ArrayList<>();
+        private long dataLength;
+        private long minFinishedAt = Long.MAX_VALUE;
+        private long maxFinishedAt = Long.MIN_VALUE;
+        private int taskCount;
+
+        void addBlock(long offset, int length, List<ScheduledTask> tasks) {
+            long blockMin = Long.MAX_VALUE;
+            long blockMax = Long.MIN_VALUE;
+            for (ScheduledTask task : tasks) {
+                blockMin = Math.min(blockMin, task.getFinishedAt());
+                blockMax = Math.max(blockMax, task.getFinishedAt());
+                int outcome = outcomeIndex(task.getStatus());
+                if (outcome >= 0) {
+                    countsByCategory.computeIfAbsent(
+                            ArchiveQuery.normalizeCategory(task.getCategory()),
+                            ignored -> new int[OUTCOMES]
+                    )[outcome]++;
+                }
+            }
+            blocks.add(new BlockEntry(offset, length, blockMin, blockMax));
+            minFinishedAt = Math.min(minFinishedAt, blockMin);
+            maxFinishedAt = Math.max(maxFinishedAt, blockMax);
+            taskCount += tasks.size();
+            dataLength = offset + length;
+        }
+
+        boolean mayMatch(ArchiveQuery query) {
+            if (taskCount == 0 || !query.overlaps(minFinishedAt, maxFinishedAt)) {
+                return false;
+            }
+            if (query.category() == null && query.status() == null) {
+                return true;
+            }
+            for (Map.Entry<String, int[]> entry : countsByCategory.entrySet()) {
+                if (query.category() != null && !query.category().equals(entry.getKey())) {
+                    continue;
+                }
+                int[] counts = entry.getValue();
+                int matching = query.status() == null
+                        ? counts[0] + counts[1] + counts[2]
+                        : counts[outcomeIndex(query.status())];
+                if (matching > 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        // Footer body followed by its length, CRC32 and the magic number.
+        byte[] encode() {
+            try {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + blocks.size() * 28 + countsByCategory.size() * 24);
+                DataOutputStream out = new DataOutputStream(bytes);
+                out.writeInt(FOOTER_MAGIC);
+                out.writeByte(FOOTER_VERSION);
+                out.writeLong(dataLength);
+                out.writeLong(minFinishedAt);
+                out.writeLong(maxFinishedAt);
+                out.writeInt(taskCount);
+                out.writeInt(countsByCategory.size());
+                for (Map.Entry<String, int[]> entry : countsByCategory.entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    for (int count : entry.getValue()) {
+                        out.writeInt(count);
+                    }
+                }
+                out.writeInt(blocks.size());
+                for (BlockEntry block : blocks) {
+                    out.writeLong(block.offset());
+                    out.writeInt(block.length());
+                    out.writeLong(block.minFinishedAt());
+                    out.writeLong(block.maxFinishedAt());
+                }
+                byte[] body = bytes.toByteArray();
+                CRC32 bodyChecksum = new CRC32();
+                bodyChecksum.update(body);
+                out.writeInt(body.length);
+                out.writeInt((int) bodyChecksum.getValue());
+                out.writeInt(FOOTER_MAGIC);
+                return bytes.toByteArray();
+            } catch (IOException impossible) {
+                throw new IllegalStateException(impossible);
+            }
+        }
+
+        static SegmentFooter decode(byte[] body) {
+            try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(body))) {
+                if (in.readInt() != FOOTER_MAGIC || in.readByte() != FOOTER_VERSION) {
+                    return null;
+                }
+                SegmentFooter footer = new SegmentFooter();
+                footer.dataLength = in.readLong();
+                footer.minFinishedAt = in.readLong();
+                footer.maxFinishedAt = in.readLong();
+                footer.taskCount = in.readInt();
+                int categoryCount = in.readInt();
+                for (int i = 0; i < categoryCount; i++) {
+                    String category = in.readUTF();
+                    int[] counts = new int[OUTCOMES];
+                    for (int outcome = 0; outcome < OUTCOMES; outcome++) {
+                        counts[outcome] = in.readInt();
+                    }
+                    footer.countsByCategory.put(category, counts);
+                }
+                int blockCount = in.readInt();
+                for (int i = 0; i < blockCount; i++) {
+                    footer.blocks.add(new BlockEntry(in.readLong(), in.readInt(), in.readLong(), in.readLong()));
+                }
+                return footer;
+            } catch (IOException damagedFooter) {
+                return null;
+            }
+        }
+
+        private static int outcomeIndex(TaskStatus status) {
+            return switch (status) {
+                case COMPLETED -> 0;
+                case MISSED -> 1;
+                case CANCELED -> 2;
+                default -> -1;
+            };
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package scheduler;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outcome of {@code SchedulerEngine.addTasks}: the tasks that were added, in submission order,
+ * and a validation message for every rejected item keyed by its position in the batch.
+ */
+public record TaskBatchResult(
+        List<ScheduledTask> addedTasks,
+        Map<Integer, String> failures
+) {
+    public int addedCount() {
+        return addedTasks.size();
+    }
+
+    public int failedCount() {
+        return failures.size();
+    }
+
+    public boolean hasFailures() {
+        return !failures.isEmpty();
+    }
+}
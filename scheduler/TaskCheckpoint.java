@@ -0,0 +1,15 @@
+package scheduler;
+
+/**
+ * Cooperative control point handed to a running {@link TaskPayload}.
+ */
+public interface TaskCheckpoint {
+    /**
+     * Returns immediately while the task holds an execution lane, blocks while it is paused
+     * or preempted, and throws {@link java.util.concurrent.CancellationException} once the
+     * task was canceled or missed its deadline.
+     */
+    void checkpoint() throws InterruptedException;
+
+    boolean isCancellationRequested();
+}
@@ -0,0 +1,299 @@
+package scheduler;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Schema-versioned binary format for {@link ScheduledTask}.
+ *
+ * <p>A block is {@code magic, version, string table, task count, tasks}. Each task is
+ * length-prefixed, so a reader skips fields appended by a newer schema and falls back to
+ * defaults for fields an older writer did not know about. Integers are varints, instants are
+ * zigzag deltas from the task's creation time, and names, categories, notes and tags are
+ * indexes into the block's string table.</p>
+ */
+public final class TaskCodec {
+    public static final int SCHEMA_VERSION = 1;
+
+    private static final byte[] MAGIC = {'R', 'T', 'S', 'K'};
+
+    private TaskCodec() {
+    }
+
+    public static byte[] encode(List<ScheduledTask> tasks) {
+        Encoder body = new Encoder(new HashMap<>(), new ArrayList<>());
+        Encoder taskBytes = new Encoder(body.stringIndexes, body.strings);
+        for (ScheduledTask task : tasks) {
+            taskBytes.reset();
+            task.encode(taskBytes);
+            body.writeBytes(taskBytes.buffer, taskBytes.size);
+        }
+
+        Encoder block = new Encoder(null, null);
+        block.writeRaw(MAGIC);
+        block.writeVarInt(SCHEMA_VERSION);
+        block.writeVarInt(body.strings.size());
+        for (String value : body.strings) {
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            block.writeBytes(utf8, utf8.length);
+        }
+        block.writeVarInt(tasks.size());
+        block.writeRaw(Arrays.copyOf(body.buffer, body.size));
+        return Arrays.copyOf(block.buffer, block.size);
+    }
+
+    public static List<ScheduledTask> decode(byte[] data) throws IOException {
+        Decoder block = new Decoder(data, 0, data.length, null);
+        for (byte expected : MAGIC) {
+            if (block.readByte() != expected) {
+                throw new IOException("Not a task block.");
+            }
+        }
+        int version = block.readVarInt();
+        if (version > SCHEMA_VERSION) {
+            throw new IOException("Unsupported task schema version " + version + ".");
+        }
+
+        String[] strings = new String[block.readVarInt()];
+        for (int index = 0; index < strings.length; index++) {
+            int length = block.readVarInt();
+            strings[index] = new String(data, block.claim(length), length, StandardCharsets.UTF_8);
+        }
+
+        int taskCount = block.readVarInt();
+        List<ScheduledTask> tasks = new ArrayList<>(taskCount);
+        for (int index = 0; index < taskCount; index++) {
+            int length = block.readVarInt();
+            tasks.add(new ScheduledTask(new Decoder(data, block.claim(length), length, strings)));
+        }
+        return tasks;
+    }
+
+    public static boolean isTaskBlock(byte[] data) {
+        if (data.length < MAGIC.length) {
+            return false;
+        }
+        for (int index = 0; index < MAGIC.length; index++) {
+            if (data[index] != MAGIC[index]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static final class Encoder {
+        private final Map<String, Integer> stringIndexes;
+        private final List<String> strings;
+        private byte[] buffer = new byte[256];
+        private int size;
+
+        private Encoder(Map<String, Integer> stringIndexes, List<String> strings) {
+            this.stringIndexes = stringIndexes;
+            this.strings = strings;
+        }
+
+        private void reset() {
+            size = 0;
+        }
+
+        public void writeVarInt(int value) {
+            writeVarLong(value & 0xFFFFFFFFL);
+        }
+
+        public void writeVarLong(long value) {
+            ensureCapacity(10);
+            while ((value & ~0x7FL) != 0L) {
+                buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[size++] = (byte) value;
+        }
+
+        public void writeSignedVarLong(long value) {
+            writeVarLong((value << 1) ^ (value >> 63));
+        }
+
+        /**
+         * Writes an instant relative to {@code base}; {@code 0} (never happened) stays cheap.
+         */
+        public void writeInstant(long value, long base) {
+            if (value == 0L) {
+                writeVarLong(0L);
+                return;
+            }
+            long delta = value - base;
+            writeVarLong(((delta << 1) ^ (delta >> 63)) + 1L);
+        }
+
+        public void writeString(String value) {
+            String safeValue = value == null ? "" : value;
+            Integer index = stringIndexes.get(safeValue);
+            if (index == null) {
+                index = strings.size();
+                strings.add(safeValue);
+                stringIndexes.put(safeValue, index);
+            }
+            writeVarInt(index);
+        }
+
+        /**
+         * Task ids are UUIDs in practice; they are stored as 16 raw bytes when they parse as one.
+         */
+        public void writeId(String value) {
+            if (value == null || value.isEmpty()) {
+                writeVarInt(0);
+                return;
+            }
+            UUID uuid = parseUuid(value);
+            if (uuid != null) {
+                writeVarInt(1);
+                ensureCapacity(16);
+                writeFixedLong(uuid.getMostSignificantBits());
+                writeFixedLong(uuid.getLeastSignificantBits());
+                return;
+            }
+            writeVarInt(2);
+            writeString(value);
+        }
+
+        private void writeFixedLong(long value) {
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                buffer[size++] = (byte) (value >>> shift);
+            }
+        }
+
+        private void writeBytes(byte[] bytes, int length) {
+            writeVarInt(length);
+            ensureCapacity(length);
+            System.arraycopy(bytes, 0, buffer, size, length);
+            size += length;
+        }
+
+        private void writeRaw(byte[] bytes) {
+            ensureCapacity(bytes.length);
+            System.arraycopy(bytes, 0, buffer, size, bytes.length);
+            size += bytes.length;
+        }
+
+        private void ensureCapacity(int extraBytes) {
+            if (size + extraBytes > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extraBytes));
+            }
+        }
+
+        private static UUID parseUuid(String value) {
+            if (value.length() != 36) {
+                return null;
+            }
+            try {
+                UUID uuid = UUID.fromString(value);
+                return uuid.toString().equals(value) ? uuid : null;
+            } catch (IllegalArgumentException notUuid) {
+                return null;
+            }
+        }
+    }
+
+    public static final class Decoder {
+        private final byte[] data;
+        private final String[] strings;
+        private final int limit;
+        private int position;
+
+        private Decoder(byte[] data, int offset, int length, String[] strings) {
+            this.data = data;
+            this.position = offset;
+            this.limit = offset + length;
+            this.strings = strings;
+        }
+
+        /**
+         * Fields added by later schema versions are read only while this returns {@code true}.
+         */
+        public boolean hasMore() {
+            return position < limit;
+        }
+
+        public int readVarInt() throws IOException {
+            long value = readVarLong();
+            if (value > 0xFFFFFFFFL) {
+                throw new IOException("Varint out of range.");
+            }
+            return (int) value;
+        }
+
+        public long readVarLong() throws IOException {
+            long value = 0L;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte next = readByte();
+                value |= (long) (next & 0x7F) << shift;
+                if ((next & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Malformed varint.");
+        }
+
+        public long readSignedVarLong() throws IOException {
+            long encoded = readVarLong();
+            return (encoded >>> 1) ^ -(encoded & 1L);
+        }
+
+        public long readInstant(long base) throws IOException {
+            long encoded = readVarLong();
+            if (encoded == 0L) {
+                return 0L;
+            }
+            encoded -= 1L;
+            return base + ((encoded >>> 1) ^ -(encoded & 1L));
+        }
+
+        public String readString() throws IOException {
+            int index = readVarInt();
+            if (index < 0 || index >= strings.length) {
+                throw new IOException("String index " + index + " out of range.");
+            }
+            return strings[index];
+        }
+
+        public String readId() throws IOException {
+            int kind = readVarInt();
+            return switch (kind) {
+                case 0 -> "";
+                case 1 -> new UUID(readFixedLong(), readFixedLong()).toString();
+                case 2 -> readString();
+                default -> throw new IOException("Unknown id encoding " + kind + ".");
+            };
+        }
+
+        private long readFixedLong() throws IOException {
+            long value = 0L;
+            for (int index = 0; index < 8; index++) {
+                value = (value << 8) | (readByte() & 0xFFL);
+            }
+            return value;
+        }
+
+        private byte readByte() throws IOException {
+            if (position >= limit) {
+                throw new IOException("Unexpected end of task data.");
+            }
+            return data[position++];
+        }
+
+        private int claim(int length) throws IOException {
+            if (length < 0 || length > limit - position) {
+                throw new IOException("Unexpected end of task data.");
+            }
+            int start = position;
+            position += length;
+            return start;
+        }
+    }
+}
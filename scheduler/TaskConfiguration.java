@@ -15,8 +15,38 @@ public record TaskConfiguration(
         long recurrenceIntervalMs,
         int recurrenceLimit,
         int retryLimit,
-        long retryBackoffMs
+        long retryBackoffMs,
+        TaskPayload payload
 ) {
+    public TaskConfiguration(
+            String name,
+            int priority,
+            long durationMs,
+            long deadlineEpochMs,
+            String category,
+            List<String> tags,
+            String notes,
+            long recurrenceIntervalMs,
+            int recurrenceLimit,
+            int retryLimit,
+            long retryBackoffMs
+    ) {
+        this(
+                name,
+                priority,
+                durationMs,
+                deadlineEpochMs,
+                category,
+                tags,
+                notes,
+                recurrenceIntervalMs,
+                recurrenceLimit,
+                retryLimit,
+                retryBackoffMs,
+                null
+        );
+    }
+
     public TaskConfiguration {
         category = normalizeOptional(category);
         notes = normalizeOptional(notes);
@@ -39,6 +69,27 @@ public record TaskConfiguration(
         return retryLimit > 0;
     }
 
+    public boolean hasPayload() {
+        return payload != null;
+    }
+
+    public TaskConfiguration withPayload(TaskPayload taskPayload) {
+        return new TaskConfiguration(
+                name,
+                priority,
+                durationMs,
+                deadlineEpochMs,
+                category,
+                tags,
+                notes,
+                recurrenceIntervalMs,
+                recurrenceLimit,
+                retryLimit,
+                retryBackoffMs,
+                taskPayload
+        );
+    }
+
     public String tagsDisplay() {
         return tags.isEmpty() ? "-" : String.join(", ", tags);
     }
@@ -96,7 +147,8 @@ public record TaskConfiguration(
                 task.getRecurrenceIntervalMs(),
                 task.getRecurrenceLimit(),
                 task.getRetryLimit(),
-                task.getRetryBackoffMs()
+                task.getRetryBackoffMs(),
+                task.getPayload()
         );
     }
 }
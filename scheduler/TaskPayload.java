@@ -0,0 +1,10 @@
+package scheduler;
+
+/**
+ * Executable body of a task. Long-running payloads should call
+ * {@link TaskCheckpoint#checkpoint()} regularly so pause, cancel and preemption take effect.
+ */
+@FunctionalInterface
+public interface TaskPayload {
+    void run(TaskCheckpoint checkpoint) throws Exception;
+}
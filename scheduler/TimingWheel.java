@@ -0,0 +1,249 @@
+package scheduler;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hierarchical hashed timing wheel for elements that become due at a known instant.
+ * Scheduling and canceling are O(1); {@link #advance(long)} hands back every due element
+ * in one batch and only cascades higher levels when the cursor crosses their boundary.
+ * Not thread-safe; callers guard it with their own lock.
+ */
+public class TimingWheel<E> {
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS_PER_LEVEL = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS_PER_LEVEL - 1;
+    private static final int LEVELS = 4;
+
+    private final long tickMs;
+    private final Map<E, Entry<E>> entries = new HashMap<>();
+    private final Bucket<E>[][] levels;
+    private final int[] levelCounts = new int[LEVELS];
+    private final Bucket<E> overflow = new Bucket<>();
+
+    private long cursorTick;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public TimingWheel(long tickMs, long startAtEpochMs) {
+        this.tickMs = Math.max(1L, tickMs);
+        this.cursorTick = Math.max(0L, startAtEpochMs) / this.tickMs;
+        this.levels = new Bucket[LEVELS][SLOTS_PER_LEVEL];
+        for (int level = 0; level < LEVELS; level++) {
+            for (int slot = 0; slot < SLOTS_PER_LEVEL; slot++) {
+                levels[level][slot] = new Bucket<>();
+            }
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    public boolean contains(E element) {
+        return entries.containsKey(element);
+    }
+
+    public void schedule(E element, long dueAtEpochMs) {
+        cancel(element);
+        Entry<E> entry = new Entry<>(element, dueAtEpochMs);
+        entries.put(element, entry);
+        place(entry);
+    }
+
+    public boolean cancel(E element) {
+        Entry<E> entry = entries.remove(element);
+        if (entry == null) {
+            return false;
+        }
+        unlink(entry);
+        return true;
+    }
+
+    /**
+     * Moves the cursor to {@code now} and returns every element whose due time has passed.
+     */
+    public List<E> advance(long now) {
+        List<E> dueElements = new ArrayList<>();
+        long targetTick = Math.max(0L, now) / tickMs;
+
+        while (cursorTick <= targetTick) {
+            cascade(cursorTick);
+
+            Bucket<E> bucket = levels[0][(int) (cursorTick & SLOT_MASK)];
+            Entry<E> entry = bucket.head;
+            while (entry != null) {
+                Entry<E> next = entry.next;
+                if (entry.dueAtEpochMs <= now) {
+                    unlink(entry);
+                    entries.remove(entry.element);
+                    dueElements.add(entry.element);
+                }
+                entry = next;
+            }
+
+            if (cursorTick == targetTick) {
+                break;
+            }
+            cursorTick = Math.min(targetTick, nextInterestingTick());
+        }
+
+        return dueElements;
+    }
+
+    /**
+     * Returns a lower bound for the next due time, or {@code Long.MAX_VALUE} when empty.
+     * Exact when the next element sits on the lowest level; otherwise it is the instant at
+     * which the owning higher-level slot cascades down.
+     */
+    public long nextDueAtHint() {
+        if (entries.isEmpty()) {
+            return Long.MAX_VALUE;
+        }
+
+        for (int level = 0; level < LEVELS; level++) {
+            if (levelCounts[level] == 0) {
+                continue;
+            }
+            int shift = SLOT_BITS * level;
+            int cursorSlot = (int) ((cursorTick >>> shift) & SLOT_MASK);
+            for (int slot = level == 0 ? cursorSlot : cursorSlot + 1; slot < SLOTS_PER_LEVEL; slot++) {
+                Bucket<E> bucket = levels[level][slot];
+                if (bucket.head == null) {
+                    continue;
+                }
+                if (level == 0) {
+                    long earliest = Long.MAX_VALUE;
+                    for (Entry<E> entry = bucket.head; entry != null; entry = entry.next) {
+                        earliest = Math.min(earliest, entry.dueAtEpochMs);
+                    }
+                    return earliest;
+                }
+                long blockStart = (cursorTick >>> (shift + SLOT_BITS)) << (shift + SLOT_BITS);
+                return (blockStart | ((long) slot << shift)) * tickMs;
+            }
+        }
+
+        int topShift = SLOT_BITS * LEVELS;
+        return (((cursorTick >>> topShift) + 1L) << topShift) * tickMs;
+    }
+
+    public void clear() {
+        for (Entry<E> entry : new ArrayList<>(entries.values())) {
+            unlink(entry);
+        }
+        entries.clear();
+    }
+
+    public List<E> toList() {
+        return new ArrayList<>(entries.keySet());
+    }
+
+    private void place(Entry<E> entry) {
+        long dueTick = Math.max(cursorTick, entry.dueAtEpochMs / tickMs);
+        for (int level = 0; level < LEVELS; level++) {
+            int parentShift = SLOT_BITS * (level + 1);
+            if ((dueTick >>> parentShift) == (cursorTick >>> parentShift)) {
+                int slot = (int) ((dueTick >>> (SLOT_BITS * level)) & SLOT_MASK);
+                link(entry, levels[level][slot], level);
+                return;
+            }
+        }
+        link(entry, overflow, LEVELS);
+    }
+
+    private void cascade(long tick) {
+        if (overflow.head != null && isAligned(tick, LEVELS)) {
+            redistribute(overflow);
+        }
+        for (int level = LEVELS - 1; level > 0; level--) {
+            if (levelCounts[level] > 0 && isAligned(tick, level)) {
+                redistribute(levels[level][(int) ((tick >>> (SLOT_BITS * level)) & SLOT_MASK)]);
+            }
+        }
+    }
+
+    private void redistribute(Bucket<E> bucket) {
+        Entry<E> entry = bucket.head;
+        while (entry != null) {
+            Entry<E> next = entry.next;
+            unlink(entry);
+            place(entry);
+            entry = next;
+        }
+    }
+
+    private long nextInterestingTick() {
+        long next = cursorTick + 1L;
+        for (int level = 0; level < LEVELS; level++) {
+            if (levelCounts[level] > 0) {
+                return next;
+            }
+            int blockShift = SLOT_BITS * (level + 1);
+            next = Math.max(next, ((cursorTick >>> blockShift) + 1L) << blockShift);
+        }
+        return overflow.head == null ? Long.MAX_VALUE : next;
+    }
+
+    private static boolean isAligned(long tick, int level) {
+        return (tick & ((1L << (SLOT_BITS * level)) - 1L)) == 0L;
+    }
+
+    private void link(Entry<E> entry, Bucket<E> bucket, int level) {
+        entry.bucket = bucket;
+        entry.level = level;
+        entry.previous = null;
+        entry.next = bucket.head;
+        if (bucket.head != null) {
+            bucket.head.previous = entry;
+        }
+        bucket.head = entry;
+        if (level < LEVELS) {
+            levelCounts[level]++;
+        }
+    }
+
+    private void unlink(Entry<E> entry) {
+        Bucket<E> bucket = entry.bucket;
+        if (bucket == null) {
+            return;
+        }
+        if (entry.previous != null) {
+            entry.previous.next = entry.next;
+        } else {
+            bucket.head = entry.next;
+        }
+        if (entry.next != null) {
+            entry.next.previous = entry.previous;
+        }
+        if (entry.level < LEVELS) {
+            levelCounts[entry.level]--;
+        }
+        entry.bucket = null;
+        entry.previous = null;
+        entry.next = null;
+    }
+
+    private static final class Bucket<E> {
+        private Entry<E> head;
+    }
+
+    private static final class Entry<E> {
+        private final E element;
+        private final long dueAtEpochMs;
+        private Bucket<E> bucket;
+        private int level;
+        private Entry<E> previous;
+        private Entry<E> next;
+
+        private Entry(E element, long dueAtEpochMs) {
+            this.element = element;
+            this.dueAtEpochMs = dueAtEpochMs;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package scheduler;
+
+/**
+ * Discrete-event time for simulations and capacity runs. Instead of sleeping, the engine
+ * jumps straight to its next event, so hours of simulated scheduling finish in seconds.
+ * Commands submitted while the engine is running are applied at the current virtual
+ * instant. When nothing is scheduled, the engine blocks until the next command.
+ * Task payloads still run in real time, so this clock is meant for simulated tasks.
+ */
+public class VirtualSchedulerClock implements SchedulerClock {
+    private volatile long nowEpochMs;
+
+    public VirtualSchedulerClock(long startAtEpochMs) {
+        this.nowEpochMs = startAtEpochMs;
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return nowEpochMs;
+    }
+
+    @Override
+    public void awaitUntil(long eventAtEpochMs, WakeUpSignal wakeUpSignal) {
+        if (wakeUpSignal.tryConsume()) {
+            return;
+        }
+        if (eventAtEpochMs == Long.MAX_VALUE) {
+            wakeUpSignal.await(Long.MAX_VALUE);
+            return;
+        }
+        advanceTo(eventAtEpochMs);
+    }
+
+    public synchronized void advanceTo(long epochMs) {
+        if (epochMs > nowEpochMs) {
+            nowEpochMs = epochMs;
+        }
+    }
+}
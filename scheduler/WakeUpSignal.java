@@ -0,0 +1,61 @@
+package scheduler;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Single-consumer wake-up flag built on {@link LockSupport}. Any number of signals raised
+ * before the consumer wakes collapse into one, and only the first of them pays for an unpark.
+ */
+public class WakeUpSignal {
+    private final AtomicBoolean pending = new AtomicBoolean();
+    private volatile Thread waiter;
+
+    public void signal() {
+        if (pending.compareAndSet(false, true)) {
+            Thread thread = waiter;
+            if (thread != null) {
+                LockSupport.unpark(thread);
+            }
+        }
+    }
+
+    /**
+     * Parks the calling thread until a signal arrives, the timeout elapses, or the thread is
+     * interrupted. A timeout of {@code Long.MAX_VALUE} waits for a signal only. Returns
+     * {@code true} when woken by a signal.
+     */
+    public boolean await(long timeoutMs) {
+        waiter = Thread.currentThread();
+        try {
+            boolean unbounded = timeoutMs == Long.MAX_VALUE;
+            long deadline = unbounded ? 0L : System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0L, timeoutMs));
+            while (!pending.getAndSet(false)) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return false;
+                }
+                if (unbounded) {
+                    LockSupport.park(this);
+                    continue;
+                }
+                long remainingNanos = deadline - System.nanoTime();
+                if (remainingNanos <= 0L) {
+                    return false;
+                }
+                LockSupport.parkNanos(this, remainingNanos);
+            }
+            return true;
+        } finally {
+            waiter = null;
+        }
+    }
+
+    public boolean tryConsume() {
+        return pending.getAndSet(false);
+    }
+
+    public void clear() {
+        pending.set(false);
+    }
+}